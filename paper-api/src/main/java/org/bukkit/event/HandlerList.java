@@ -21,6 +21,12 @@ public class HandlerList {
      */
     private volatile RegisteredListener[] handlers = null;
 
+    /**
+     * Number of registered listeners, kept up to date on every registration
+     * change so it can be checked without baking.
+     */
+    private volatile int listenerCount;
+
     /**
      * Dynamic handler lists. These are changed using register() and
      * unregister() and are automatically baked to the handlers array any time
@@ -62,6 +68,7 @@ public class HandlerList {
                         list.clear();
                     }
                     h.handlers = null;
+                    h.listenerCount = 0;
                 }
             }
         }
@@ -123,6 +130,7 @@ public class HandlerList {
             throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
         handlers = null;
         handlerslots.get(listener.getPriority()).add(listener);
+        listenerCount++;
     }
 
     /**
@@ -144,6 +152,7 @@ public class HandlerList {
     public synchronized void unregister(@NotNull RegisteredListener listener) {
         if (handlerslots.get(listener.getPriority()).remove(listener)) {
             handlers = null;
+            listenerCount--;
         }
     }
 
@@ -158,6 +167,7 @@ public class HandlerList {
             for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
                 if (i.next().getPlugin().equals(plugin)) {
                     i.remove();
+                    listenerCount--;
                     changed = true;
                 }
             }
@@ -176,6 +186,7 @@ public class HandlerList {
             for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
                 if (i.next().getListener().equals(listener)) {
                     i.remove();
+                    listenerCount--;
                     changed = true;
                 }
             }
@@ -195,6 +206,20 @@ public class HandlerList {
         handlers = entries.toArray(new RegisteredListener[entries.size()]);
     }
 
+    /**
+     * Checks if any listener is registered to this handler list.
+     * <p>
+     * Unlike {@link #getRegisteredListeners()}, this never needs to bake the
+     * handler list or take its lock, making it suitable to skip creating an
+     * event (and everything needed to construct it) on hot paths when nothing
+     * would receive it.
+     *
+     * @return whether at least one listener is registered
+     */
+    public boolean hasRegisteredListeners() {
+        return this.listenerCount != 0;
+    }
+
     /**
      * Get the baked registered listeners associated with this handler list
      *
@@ -0,0 +1,60 @@
+package org.bukkit.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class HandlerListTest {
+
+    private final HandlerList handlers = TestEvent.getHandlerList();
+
+    @AfterEach
+    public void tearDown() {
+        HandlerList.unregisterAll();
+    }
+
+    private static RegisteredListener listener(Listener listener, TestPlugin plugin) {
+        return new RegisteredListener(listener, (l, event) -> {}, EventPriority.NORMAL, plugin, false);
+    }
+
+    @Test
+    public void testRegisterAndUnregister() {
+        assertFalse(this.handlers.hasRegisteredListeners());
+
+        RegisteredListener registration = listener(new Listener() {}, new TestPlugin("Test"));
+        this.handlers.register(registration);
+        assertTrue(this.handlers.hasRegisteredListeners());
+
+        this.handlers.unregister(registration);
+        assertFalse(this.handlers.hasRegisteredListeners());
+        // not registered anymore, must not be counted twice
+        this.handlers.unregister(registration);
+        assertFalse(this.handlers.hasRegisteredListeners());
+    }
+
+    @Test
+    public void testUnregisterByPluginAndListener() {
+        TestPlugin first = new TestPlugin("First");
+        TestPlugin second = new TestPlugin("Second");
+        Listener shared = new Listener() {};
+        this.handlers.register(listener(shared, first));
+        this.handlers.register(listener(new Listener() {}, first));
+        this.handlers.register(listener(shared, second));
+
+        this.handlers.unregister(first);
+        assertTrue(this.handlers.hasRegisteredListeners());
+        assertEquals(1, this.handlers.getRegisteredListeners().length);
+
+        this.handlers.unregister(shared);
+        assertFalse(this.handlers.hasRegisteredListeners());
+    }
+
+    @Test
+    public void testUnregisterAll() {
+        this.handlers.register(listener(new Listener() {}, new TestPlugin("Test")));
+        HandlerList.unregisterAll();
+        assertFalse(this.handlers.hasRegisteredListeners());
+    }
+}
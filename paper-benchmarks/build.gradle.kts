@@ -0,0 +1,22 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.3"
+}
+
+dependencies {
+    jmhImplementation(project(":paper-server", "testRuntimeConfiguration"))
+    jmh("org.openjdk.jmh:jmh-core:1.37")
+    jmhAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // the dummy server mocks Bukkit with mockito, which attaches its agent at runtime
+    jvmArgsAppend.add("-XX:+EnableDynamicAgentLoading")
+    // run a subset with -PbenchmarkIncludes=Palette
+    providers.gradleProperty("benchmarkIncludes").orNull?.let { includes.add(it) }
+    resultFormat = "JSON"
+}
+
+group = "io.papermc.paper"
+version = "1.0-SNAPSHOT"
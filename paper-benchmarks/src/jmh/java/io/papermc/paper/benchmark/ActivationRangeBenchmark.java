@@ -0,0 +1,185 @@
+package io.papermc.paper.benchmark;
+
+import io.papermc.paper.entity.activation.ActivationGrid;
+import io.papermc.paper.entity.activation.ActivationType;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.AABB;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the activation range evaluation of one tick, scanning the entities around every player chunk by chunk as
+ * {@code ActivationRange.activateEntities} does against looking entities up in an {@link ActivationGrid}.
+ * <p>
+ * Players and entities are spread over a square of chunks with the default activation ranges, the entities at a given
+ * density per chunk. The players move a little every tick, crossing a chunk border now and then.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationRangeBenchmark {
+
+    private static final int HEIGHT = 384;
+    private static final int[] RANGES = new int[ActivationType.values().length];
+
+    static {
+        BenchmarkBootstrap.init();
+        RANGES[ActivationType.WATER.ordinal()] = 16;
+        RANGES[ActivationType.FLYING_MONSTER.ordinal()] = 48;
+        RANGES[ActivationType.VILLAGER.ordinal()] = 16;
+        RANGES[ActivationType.MONSTER.ordinal()] = 24;
+        RANGES[ActivationType.ANIMAL.ordinal()] = 16;
+        RANGES[ActivationType.RAIDER.ordinal()] = 64;
+        RANGES[ActivationType.MISC.ordinal()] = 8;
+    }
+
+    @Param({"1", "8", "32"})
+    public int entitiesPerChunk;
+
+    @Param({"20"})
+    public int players;
+
+    @Param({"32"})
+    public int chunks;
+
+    private final ActivationGrid grid = new ActivationGrid();
+    private final Long2ObjectOpenHashMap<ObjectArrayList<Entity>> entitiesByChunk = new Long2ObjectOpenHashMap<>();
+    private Entity[] entities;
+    private Player[] playerKeys;
+    private AABB[] playerBoxes;
+    private long tick;
+
+    @Setup
+    public void setup() {
+        final SplittableRandom random = new SplittableRandom(1L);
+        final int size = this.chunks << 4;
+        final ActivationType[] types = ActivationType.values();
+        this.entities = new Entity[this.chunks * this.chunks * this.entitiesPerChunk];
+        for (int i = 0; i < this.entities.length; ++i) {
+            final double x = random.nextDouble(size);
+            final double y = random.nextDouble(-64.0, 100.0);
+            final double z = random.nextDouble(size);
+            final Entity entity = new Entity(types[random.nextInt(types.length)], new AABB(x - 0.3, y, z - 0.3, x + 0.3, y + 1.8, z + 0.3));
+            this.entities[i] = entity;
+            this.entitiesByChunk.computeIfAbsent(chunkKey(Mth.floor(x) >> 4, Mth.floor(z) >> 4), key -> new ObjectArrayList<>()).add(entity);
+        }
+
+        this.playerKeys = new Player[this.players];
+        this.playerBoxes = new AABB[this.players];
+        for (int i = 0; i < this.players; ++i) {
+            this.playerKeys[i] = Mockito.mock(Player.class);
+            final double x = random.nextDouble(size);
+            final double z = random.nextDouble(size);
+            this.playerBoxes[i] = new AABB(x - 0.3, 64.0, z - 0.3, x + 0.3, 65.8, z + 0.3);
+        }
+    }
+
+    private static long chunkKey(final int chunkX, final int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+
+    private int maxRange() {
+        int maxRange = 0;
+        for (final int range : RANGES) {
+            maxRange = Math.max(maxRange, range);
+        }
+        return maxRange;
+    }
+
+    private void movePlayers() {
+        ++this.tick;
+        final double step = (this.tick & 64) == 0 ? 0.25 : -0.25;
+        for (int i = 0; i < this.playerBoxes.length; ++i) {
+            this.playerBoxes[i] = this.playerBoxes[i].move(step, 0.0, step);
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        this.movePlayers();
+        final int maxRange = this.maxRange();
+        final AABB[] typeBoxes = new AABB[RANGES.length];
+        for (final AABB player : this.playerBoxes) {
+            final AABB maxBox = player.inflate(maxRange, HEIGHT, maxRange);
+            for (int type = 0; type < RANGES.length; ++type) {
+                typeBoxes[type] = player.inflate(RANGES[type], HEIGHT, RANGES[type]);
+            }
+            for (int chunkX = Mth.floor(maxBox.minX - 2.0) >> 4, maxChunkX = Mth.floor(maxBox.maxX + 2.0) >> 4; chunkX <= maxChunkX; ++chunkX) {
+                for (int chunkZ = Mth.floor(maxBox.minZ - 2.0) >> 4, maxChunkZ = Mth.floor(maxBox.maxZ + 2.0) >> 4; chunkZ <= maxChunkZ; ++chunkZ) {
+                    final ObjectArrayList<Entity> entities = this.entitiesByChunk.get(chunkKey(chunkX, chunkZ));
+                    if (entities == null) {
+                        continue;
+                    }
+                    for (final Entity entity : entities) {
+                        if (entity.activatedTick < this.tick && entity.boundingBox.intersects(maxBox)
+                            && typeBoxes[entity.type.ordinal()].intersects(entity.boundingBox)) {
+                            entity.activatedTick = this.tick;
+                        }
+                    }
+                }
+            }
+        }
+        return this.countActive();
+    }
+
+    @Benchmark
+    public int grid() {
+        this.movePlayers();
+        final int maxRange = this.maxRange();
+        this.grid.beginTick(this.tick, HEIGHT);
+        for (final ActivationType type : ActivationType.values()) {
+            this.grid.setRange(type, Math.min(RANGES[type.ordinal()], maxRange));
+        }
+        for (int i = 0; i < this.playerKeys.length; ++i) {
+            this.grid.updatePlayer(this.playerKeys[i], this.playerBoxes[i]);
+        }
+        this.grid.endTick();
+
+        for (final Entity entity : this.entities) {
+            if (entity.activatedTick < this.tick && this.grid.isInRange(entity.type, entity.boundingBox)) {
+                entity.activatedTick = this.tick;
+            }
+        }
+        return this.countActive();
+    }
+
+    private int countActive() {
+        int active = 0;
+        for (final Entity entity : this.entities) {
+            if (entity.activatedTick == this.tick) {
+                ++active;
+            }
+        }
+        return active;
+    }
+
+    private static final class Entity {
+
+        private final ActivationType type;
+        private final AABB boundingBox;
+        private long activatedTick;
+
+        private Entity(final ActivationType type, final AABB boundingBox) {
+            this.type = type;
+            this.boundingBox = boundingBox;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.papermc.paper.benchmark;
+
+import io.papermc.paper.antixray.BitStorageReader;
+import io.papermc.paper.antixray.BitStorageWriter;
+import io.papermc.paper.antixray.ChunkPacketBlockControllerAntiXray;
+import io.papermc.paper.antixray.ChunkPacketInfoAntiXray;
+import io.papermc.paper.configuration.WorldConfiguration;
+import io.papermc.paper.configuration.type.EngineMode;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.GlobalPalette;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures anti-xray obfuscation of the chunk data of a chunk packet, obfuscating the sections one after another and
+ * in parallel, as well as reading the packed block data with {@link BitStorageReader} against the byte-wise reads it
+ * used before.
+ * <p>
+ * The sections below the default max-block-height use the global palette and are filled with stone, some air for caves
+ * and some ores. Neighbouring chunks are not loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AntiXrayBenchmark {
+
+    private static final int SECTIONS = 24;
+    private static final int MIN_SECTION_Y = -4;
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+    private static final BlockState[] ORES = {
+        Blocks.COAL_ORE.defaultBlockState(), Blocks.IRON_ORE.defaultBlockState(), Blocks.DIAMOND_ORE.defaultBlockState(),
+        Blocks.DEEPSLATE_GOLD_ORE.defaultBlockState(), Blocks.DEEPSLATE_REDSTONE_ORE.defaultBlockState()
+    };
+
+    static {
+        BenchmarkBootstrap.init();
+    }
+
+    @Param({"OBFUSCATE", "OBFUSCATE_LAYER"})
+    public EngineMode engineMode;
+
+    @Param({"4"})
+    public int threads;
+
+    private ChunkPacketBlockControllerAntiXray controller;
+    private ChunkPacketInfoAntiXray chunkPacketInfo;
+    private ForkJoinPool pool;
+    private byte[] original;
+    private byte[] buffer;
+    private int bits;
+
+    @Setup
+    public void setup() {
+        final WorldConfiguration worldConfiguration = Mockito.mock(WorldConfiguration.class);
+        final WorldConfiguration.Anticheat.AntiXray config = worldConfiguration.new Anticheat().new AntiXray();
+        config.enabled = true;
+        config.engineMode = this.engineMode;
+        this.controller = new ChunkPacketBlockControllerAntiXray(config, EmptyBlockGetter.INSTANCE, Runnable::run);
+        this.pool = new ForkJoinPool(this.threads);
+
+        final LevelChunk chunk = Mockito.mock(LevelChunk.class);
+        Mockito.when(chunk.getSectionsCount()).thenReturn(SECTIONS);
+        Mockito.when(chunk.getMinSectionY()).thenReturn(MIN_SECTION_Y);
+        Mockito.when(chunk.getSections()).thenReturn(new LevelChunkSection[SECTIONS]);
+        Mockito.when(chunk.getLevel()).thenReturn(Mockito.mock(Level.class));
+
+        this.bits = Mth.ceillog2(Block.BLOCK_STATE_REGISTRY.size());
+        final int sectionBytes = Mth.positiveCeilDiv(SECTION_SIZE, 64 / this.bits) * Long.BYTES;
+        final int obfuscatedSections = (config.maxBlockHeight >> 4) - MIN_SECTION_Y;
+        this.original = new byte[obfuscatedSections * sectionBytes];
+        this.buffer = new byte[this.original.length];
+        this.chunkPacketInfo = new ChunkPacketInfoAntiXray(null, chunk, this.controller);
+        this.chunkPacketInfo.setBuffer(this.buffer);
+        this.chunkPacketInfo.setNearbyChunks(null, null, null, null);
+
+        final GlobalPalette<BlockState> palette = new GlobalPalette<>(Block.BLOCK_STATE_REGISTRY);
+        final SplittableRandom random = new SplittableRandom(1L);
+        final BitStorageWriter writer = new BitStorageWriter();
+        writer.setBuffer(this.original);
+        writer.setBits(this.bits);
+        for (int section = 0; section < obfuscatedSections; ++section) {
+            final int index = section * sectionBytes;
+            this.chunkPacketInfo.setBits(section, this.bits);
+            this.chunkPacketInfo.setPalette(section, palette);
+            this.chunkPacketInfo.setIndex(section, index);
+            this.chunkPacketInfo.setPresetValues(section, this.controller.getPresetBlockStates(null, null, section + MIN_SECTION_Y));
+            final BlockState base = section + MIN_SECTION_Y < 0 ? Blocks.DEEPSLATE.defaultBlockState() : Blocks.STONE.defaultBlockState();
+            writer.setIndex(index);
+            for (int i = 0; i < SECTION_SIZE; ++i) {
+                final int roll = random.nextInt(100);
+                final BlockState state = roll < 8 ? Blocks.AIR.defaultBlockState() : roll < 12 ? ORES[random.nextInt(ORES.length)] : base;
+                writer.write(palette.idFor(state));
+            }
+            writer.flush();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    private void reset() {
+        System.arraycopy(this.original, 0, this.buffer, 0, this.original.length);
+    }
+
+    @Benchmark
+    public byte[] obfuscateSerial() {
+        this.reset();
+        this.controller.obfuscateSerial(this.chunkPacketInfo);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public byte[] obfuscateParallel() {
+        this.reset();
+        this.controller.obfuscateParallel(this.chunkPacketInfo, this.pool);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public int read() {
+        final BitStorageReader reader = new BitStorageReader();
+        reader.setBuffer(this.original);
+        reader.setBits(this.bits);
+        reader.setIndex(0);
+        final int values = this.original.length / Long.BYTES * (64 / this.bits);
+        int sum = 0;
+        for (int i = 0; i < values; ++i) {
+            sum += reader.read();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readBytewise() {
+        final BytewiseReader reader = new BytewiseReader(this.original, this.bits);
+        final int values = this.original.length / Long.BYTES * (64 / this.bits);
+        int sum = 0;
+        for (int i = 0; i < values; ++i) {
+            sum += reader.read();
+        }
+        return sum;
+    }
+
+    /**
+     * The reader as it was before, assembling each long from its 8 bytes.
+     */
+    private static final class BytewiseReader {
+
+        private final byte[] buffer;
+        private final int bits;
+        private final int mask;
+        private int longInBufferIndex;
+        private int bitInLongIndex;
+        private long current;
+
+        private BytewiseReader(final byte[] buffer, final int bits) {
+            this.buffer = buffer;
+            this.bits = bits;
+            this.mask = (1 << bits) - 1;
+            this.init();
+        }
+
+        private void init() {
+            if (this.buffer.length > this.longInBufferIndex + 7) {
+                this.current = ((((long) this.buffer[this.longInBufferIndex]) << 56)
+                    | (((long) this.buffer[this.longInBufferIndex + 1] & 0xff) << 48)
+                    | (((long) this.buffer[this.longInBufferIndex + 2] & 0xff) << 40)
+                    | (((long) this.buffer[this.longInBufferIndex + 3] & 0xff) << 32)
+                    | (((long) this.buffer[this.longInBufferIndex + 4] & 0xff) << 24)
+                    | (((long) this.buffer[this.longInBufferIndex + 5] & 0xff) << 16)
+                    | (((long) this.buffer[this.longInBufferIndex + 6] & 0xff) << 8)
+                    | (((long) this.buffer[this.longInBufferIndex + 7] & 0xff)));
+            }
+        }
+
+        private int read() {
+            if (this.bitInLongIndex + this.bits > 64) {
+                this.bitInLongIndex = 0;
+                this.longInBufferIndex += 8;
+                this.init();
+            }
+
+            final int value = (int) (this.current >>> this.bitInLongIndex) & this.mask;
+            this.bitInLongIndex += this.bits;
+            return value;
+        }
+    }
+}
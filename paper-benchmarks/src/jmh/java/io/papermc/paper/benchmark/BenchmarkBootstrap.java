@@ -0,0 +1,26 @@
+package io.papermc.paper.benchmark;
+
+import net.minecraft.world.flag.FeatureFlags;
+import org.bukkit.Bukkit;
+import org.bukkit.support.DummyServerHelper;
+import org.bukkit.support.RegistryHelper;
+
+/**
+ * Bootstraps the registries and a dummy Bukkit server once per fork, the same way the {@code @Normal} test environment does.
+ */
+public final class BenchmarkBootstrap {
+
+    private static boolean initialized;
+
+    private BenchmarkBootstrap() {
+    }
+
+    public static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        RegistryHelper.setup(FeatureFlags.VANILLA_SET);
+        Bukkit.setServer(DummyServerHelper.setup());
+    }
+}
@@ -0,0 +1,74 @@
+package io.papermc.paper.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.util.SimpleBitStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the packed long storage backing palettes and heightmaps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitStorageBenchmark {
+
+    private static final int SIZE = 16 * 16 * 16;
+
+    @Param({"1", "4", "5", "9", "15"})
+    public int bits;
+
+    private SimpleBitStorage storage;
+    private int[] values;
+
+    @Setup
+    public void setup() {
+        // SimpleBitStorage does not touch any registry, no bootstrap needed
+        this.storage = new SimpleBitStorage(this.bits, SIZE);
+        final SplittableRandom random = new SplittableRandom(1L);
+        this.values = new int[SIZE];
+        for (int i = 0; i < SIZE; ++i) {
+            this.values[i] = random.nextInt(1 << this.bits);
+            this.storage.set(i, this.values[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void get(final Blackhole blackhole) {
+        final SimpleBitStorage storage = this.storage;
+        for (int i = 0; i < SIZE; ++i) {
+            blackhole.consume(storage.get(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void getAndSet(final Blackhole blackhole) {
+        final SimpleBitStorage storage = this.storage;
+        final int[] values = this.values;
+        for (int i = 0; i < SIZE; ++i) {
+            blackhole.consume(storage.getAndSet(i, values[SIZE - 1 - i]));
+        }
+    }
+
+    @Benchmark
+    public void getAll(final Blackhole blackhole) {
+        this.storage.getAll(blackhole::consume);
+    }
+}
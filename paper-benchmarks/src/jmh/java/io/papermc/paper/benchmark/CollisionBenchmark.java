@@ -0,0 +1,109 @@
+package io.papermc.paper.benchmark;
+
+import ca.spottedleaf.moonrise.patches.collisions.CollisionUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.SlabBlock;
+import net.minecraft.world.level.block.StairBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.Half;
+import net.minecraft.world.level.block.state.properties.SlabType;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.phys.shapes.BooleanOp;
+import net.minecraft.world.phys.shapes.CollisionContext;
+import net.minecraft.world.phys.shapes.Shapes;
+import net.minecraft.world.phys.shapes.VoxelShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures entity movement against the block shapes around a player sized box, the work done per entity per tick by
+ * {@link CollisionUtil#performCollisions}, and merging of block shapes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private final List<VoxelShape> voxels = new ArrayList<>();
+    private final List<AABB> aabbs = new ArrayList<>();
+    private AABB box;
+    private Vec3 movement;
+    private VoxelShape stairs;
+    private VoxelShape slab;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+
+        final BlockState[] states = {
+            Blocks.STONE.defaultBlockState(),
+            Blocks.OAK_STAIRS.defaultBlockState().setValue(StairBlock.HALF, Half.BOTTOM),
+            Blocks.STONE_SLAB.defaultBlockState().setValue(SlabBlock.TYPE, SlabType.TOP),
+            Blocks.OAK_FENCE.defaultBlockState(),
+            Blocks.HOPPER.defaultBlockState()
+        };
+        int i = 0;
+        // floor and walls of a 3x3 pit around the box, as gathered for a falling and walking entity
+        for (int x = -1; x <= 1; ++x) {
+            for (int z = -1; z <= 1; ++z) {
+                for (int y = -1; y <= 2; ++y) {
+                    if (y >= 0 && x == 0 && z == 0) {
+                        continue;
+                    }
+                    final BlockState state = states[i++ % states.length];
+                    final VoxelShape shape = state.getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO, CollisionContext.empty());
+                    if (shape.isEmpty()) {
+                        continue;
+                    }
+                    final VoxelShape moved = shape.move(x, y, z);
+                    if (shape == Shapes.block()) {
+                        this.aabbs.add(moved.bounds());
+                    } else {
+                        this.voxels.add(moved);
+                    }
+                }
+            }
+        }
+        this.box = new AABB(0.2, 0.0, 0.2, 0.8, 1.8, 0.8);
+        this.movement = new Vec3(0.6, -0.08, 0.45);
+        this.stairs = states[1].getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO, CollisionContext.empty());
+        this.slab = states[2].getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO, CollisionContext.empty());
+    }
+
+    @Benchmark
+    public Vec3 performCollisions() {
+        return CollisionUtil.performCollisions(this.movement, this.box, this.voxels, this.aabbs);
+    }
+
+    @Benchmark
+    public Vec3 performAABBCollisions() {
+        return CollisionUtil.performAABBCollisions(this.movement, this.box, this.aabbs);
+    }
+
+    @Benchmark
+    public VoxelShape joinShapes() {
+        return Shapes.join(this.stairs, this.slab, BooleanOp.OR);
+    }
+
+    @Benchmark
+    public boolean joinIsNotEmpty() {
+        return Shapes.joinIsNotEmpty(this.stairs, this.slab, BooleanOp.AND);
+    }
+}
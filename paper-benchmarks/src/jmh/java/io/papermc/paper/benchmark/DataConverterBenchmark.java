@@ -0,0 +1,50 @@
+package io.papermc.paper.benchmark;
+
+import ca.spottedleaf.dataconverter.minecraft.MCDataConverter;
+import ca.spottedleaf.dataconverter.minecraft.datatypes.MCTypeRegistry;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.CompoundTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures upgrading sample chunks from older data versions to the current one. Conversion happens in place, so
+ * every invocation converts a fresh copy; {@link NbtBenchmark#copy()} gives the cost of that copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataConverterBenchmark {
+
+    @Param({"" + SampleChunks.V1_17_1, "" + SampleChunks.V1_20_4})
+    public int fromVersion;
+
+    private CompoundTag chunk;
+    private int toVersion;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+
+        this.chunk = SampleChunks.create(this.fromVersion, 1L);
+        this.toVersion = SharedConstants.getCurrentVersion().dataVersion().version();
+    }
+
+    @Benchmark
+    public CompoundTag convertChunk() {
+        return MCDataConverter.convertTag(MCTypeRegistry.CHUNK, this.chunk.copy(), this.fromVersion, this.toVersion);
+    }
+}
@@ -0,0 +1,108 @@
+package io.papermc.paper.benchmark;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import io.papermc.paper.plugin.manager.PaperPluginManagerImpl;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code PaperEventManager#callEvent} through the plugin manager, with a varying number of registered
+ * listeners, each with two {@link EventHandler} methods.
+ * <p>
+ * The dummy server treats the thread that bootstrapped it as the primary thread, so this state is per thread and
+ * must only be run with a single benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    @Param({"0", "1", "8"})
+    public int listeners;
+
+    private PaperPluginManagerImpl pluginManager;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+
+        this.pluginManager = new PaperPluginManagerImpl(Bukkit.getServer(), null, null);
+        final PaperTestPlugin plugin = new PaperTestPlugin("benchmark");
+        for (int i = 0; i < this.listeners; ++i) {
+            this.pluginManager.registerEvents(new BenchmarkListener(), plugin);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkEvent.HANDLER_LIST.unregisterAll();
+    }
+
+    @Benchmark
+    public boolean callEvent() {
+        final BenchmarkEvent event = new BenchmarkEvent();
+        this.pluginManager.callEvent(event);
+        return event.isCancelled();
+    }
+
+    public static final class BenchmarkEvent extends Event implements Cancellable {
+
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+
+        private int calls;
+        private boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void setCancelled(final boolean cancel) {
+            this.cancelled = cancel;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
+
+    public static final class BenchmarkListener implements Listener {
+
+        @EventHandler
+        public void onEvent(final BenchmarkEvent event) {
+            ++event.calls;
+        }
+
+        @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+        public void onEventIgnoringCancelled(final BenchmarkEvent event) {
+            event.setCancelled(event.calls > 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.papermc.paper.benchmark;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loopback load test of the transports the server listener can use: every operation sends one message on each of
+ * many client connections and waits until the server has echoed all of them back.
+ * <p>
+ * The epoll and io_uring transports are only available on Linux; the io_uring transport additionally needs a kernel
+ * allowing io_uring. Trials of unavailable transports fail during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackTransportBenchmark {
+
+    @Param
+    public Transport transport;
+
+    @Param({"256"})
+    public int connections;
+
+    @Param({"64", "8192"})
+    public int messageSize;
+
+    @Param({"true", "false"})
+    public boolean tcpNoDelay;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel server;
+    private final List<Channel> clients = new ArrayList<>();
+    private ByteBuf message;
+    private volatile CountDownLatch pending;
+
+    @Setup
+    public void setup() {
+        this.transport.ensureAvailability();
+        this.serverGroup = this.transport.group.apply(2);
+        this.clientGroup = this.transport.group.apply(2);
+        this.message = Unpooled.unreleasableBuffer(Unpooled.directBuffer(this.messageSize).writeZero(this.messageSize));
+
+        this.server = new ServerBootstrap()
+            .group(this.serverGroup)
+            .channel(this.transport.serverChannel)
+            .childOption(ChannelOption.TCP_NODELAY, this.tcpNoDelay)
+            .childHandler(new ChannelInitializer<>() {
+                @Override
+                protected void initChannel(final Channel channel) {
+                    channel.pipeline().addLast(new EchoHandler());
+                }
+            })
+            .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            .syncUninterruptibly()
+            .channel();
+
+        final Bootstrap bootstrap = new Bootstrap()
+            .group(this.clientGroup)
+            .channel(this.transport.channel)
+            .option(ChannelOption.TCP_NODELAY, this.tcpNoDelay)
+            .handler(new ChannelInitializer<>() {
+                @Override
+                protected void initChannel(final Channel channel) {
+                    channel.pipeline().addLast(new ClientHandler());
+                }
+            });
+        for (int i = 0; i < this.connections; ++i) {
+            this.clients.add(bootstrap.connect(this.server.localAddress()).syncUninterruptibly().channel());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final Channel client : this.clients) {
+            client.close().syncUninterruptibly();
+        }
+        this.clients.clear();
+        this.server.close().syncUninterruptibly();
+        this.clientGroup.shutdownGracefully(0L, 0L, TimeUnit.SECONDS).syncUninterruptibly();
+        this.serverGroup.shutdownGracefully(0L, 0L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void roundTrip() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(this.clients.size());
+        this.pending = latch;
+        for (final Channel client : this.clients) {
+            client.writeAndFlush(this.message.duplicate(), client.voidPromise());
+        }
+        latch.await();
+    }
+
+    public enum Transport {
+        NIO(NioEventLoopGroup::new, NioServerSocketChannel.class, NioSocketChannel.class),
+        EPOLL(EpollEventLoopGroup::new, EpollServerSocketChannel.class, EpollSocketChannel.class),
+        IO_URING(IOUringEventLoopGroup::new, IOUringServerSocketChannel.class, IOUringSocketChannel.class);
+
+        private final IntFunction<EventLoopGroup> group;
+        private final Class<? extends ServerChannel> serverChannel;
+        private final Class<? extends Channel> channel;
+
+        Transport(final IntFunction<EventLoopGroup> group, final Class<? extends ServerChannel> serverChannel, final Class<? extends Channel> channel) {
+            this.group = group;
+            this.serverChannel = serverChannel;
+            this.channel = channel;
+        }
+
+        private void ensureAvailability() {
+            switch (this) {
+                case EPOLL -> Epoll.ensureAvailability();
+                case IO_URING -> IOUring.ensureAvailability();
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            ctx.write(msg, ctx.voidPromise());
+        }
+
+        @Override
+        public void channelReadComplete(final ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    private final class ClientHandler extends ChannelInboundHandlerAdapter {
+
+        private int received;
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            this.received += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (this.received >= LoopbackTransportBenchmark.this.messageSize) {
+                this.received -= LoopbackTransportBenchmark.this.messageSize;
+                LoopbackTransportBenchmark.this.pending.countDown();
+            }
+        }
+    }
+}
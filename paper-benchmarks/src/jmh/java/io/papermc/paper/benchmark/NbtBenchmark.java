@@ -0,0 +1,64 @@
+package io.papermc.paper.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures (de)serialization of a full chunk through {@link NbtIo}, without compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NbtBenchmark {
+
+    private CompoundTag chunk;
+    private byte[] serialized;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkBootstrap.init();
+
+        this.chunk = SampleChunks.create(SampleChunks.V1_20_4, 1L);
+        this.output = new ByteArrayOutputStream(64 * 1024);
+        NbtIo.write(this.chunk, new DataOutputStream(this.output));
+        this.serialized = this.output.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        final ByteArrayOutputStream output = this.output;
+        output.reset();
+        NbtIo.write(this.chunk, new DataOutputStream(output));
+        return output.size();
+    }
+
+    @Benchmark
+    public CompoundTag read() throws IOException {
+        return NbtIo.read(new DataInputStream(new ByteArrayInputStream(this.serialized)));
+    }
+
+    @Benchmark
+    public CompoundTag copy() {
+        return this.chunk.copy();
+    }
+}
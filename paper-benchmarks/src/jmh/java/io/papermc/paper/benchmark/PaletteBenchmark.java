@@ -0,0 +1,97 @@
+package io.papermc.paper.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures block state reads and writes on a chunk section container, for palettes of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteBenchmark {
+
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+
+    /**
+     * Number of distinct states in the section: single value, linear, hashmap and global palette.
+     */
+    @Param({"1", "8", "64", "512"})
+    public int states;
+
+    private BlockState[] values;
+    private PalettedContainer<BlockState> container;
+    private int[] indices;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+
+        this.values = new BlockState[this.states];
+        for (int i = 0; i < this.states; ++i) {
+            this.values[i] = Block.BLOCK_STATE_REGISTRY.byId(i + 1);
+        }
+
+        this.container = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+        final SplittableRandom random = new SplittableRandom(1L);
+        this.indices = new int[SECTION_SIZE];
+        for (int i = 0; i < SECTION_SIZE; ++i) {
+            this.indices[i] = random.nextInt(SECTION_SIZE);
+            this.container.getAndSetUnchecked(i & 15, i >>> 8, (i >>> 4) & 15, this.values[random.nextInt(this.states)]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SECTION_SIZE)
+    public void getSequential(final Blackhole blackhole) {
+        final PalettedContainer<BlockState> container = this.container;
+        for (int y = 0; y < 16; ++y) {
+            for (int z = 0; z < 16; ++z) {
+                for (int x = 0; x < 16; ++x) {
+                    blackhole.consume(container.get(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SECTION_SIZE)
+    public void getRandom(final Blackhole blackhole) {
+        final PalettedContainer<BlockState> container = this.container;
+        for (final int index : this.indices) {
+            blackhole.consume(container.get(index & 15, index >>> 8, (index >>> 4) & 15));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SECTION_SIZE)
+    public void setRandom(final Blackhole blackhole) {
+        final PalettedContainer<BlockState> container = this.container;
+        final BlockState[] values = this.values;
+        final int[] indices = this.indices;
+        for (int i = 0; i < SECTION_SIZE; ++i) {
+            final int index = indices[i];
+            blackhole.consume(container.getAndSetUnchecked(index & 15, index >>> 8, (index >>> 4) & 15, values[i % values.length]));
+        }
+    }
+}
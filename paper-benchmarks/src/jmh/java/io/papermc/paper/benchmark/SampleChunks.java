@@ -0,0 +1,128 @@
+package io.papermc.paper.benchmark;
+
+import java.util.SplittableRandom;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+
+/**
+ * Builds chunk NBT resembling what is found in region files of older worlds. The block data is random, but every
+ * palette index is valid, so converters walk the same paths as for real chunks.
+ */
+final class SampleChunks {
+
+    /**
+     * 1.17.1, the last version before the 1.18 height and section format changes.
+     */
+    static final int V1_17_1 = 2730;
+    /**
+     * 1.20.4
+     */
+    static final int V1_20_4 = 3700;
+
+    private static final String[] BLOCKS = {
+        "minecraft:stone", "minecraft:granite", "minecraft:diorite", "minecraft:andesite",
+        "minecraft:dirt", "minecraft:gravel", "minecraft:coal_ore", "minecraft:iron_ore",
+        "minecraft:copper_ore", "minecraft:gold_ore", "minecraft:water", "minecraft:lava",
+        "minecraft:air", "minecraft:cave_air", "minecraft:tuff", "minecraft:bedrock"
+    };
+    // 16 palette entries need 4 bits, 16 values per long
+    private static final int DATA_LONGS = 16 * 16 * 16 * 4 / 64;
+
+    private SampleChunks() {
+    }
+
+    static CompoundTag create(final int dataVersion, final long seed) {
+        return dataVersion < 2836 ? legacy(dataVersion, seed) : modern(dataVersion, seed);
+    }
+
+    private static CompoundTag legacy(final int dataVersion, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final CompoundTag level = new CompoundTag();
+        level.putInt("xPos", 0);
+        level.putInt("zPos", 0);
+        level.putString("Status", "full");
+        level.putLong("InhabitedTime", 0L);
+
+        final ListTag sections = new ListTag();
+        for (int y = 0; y < 16; ++y) {
+            final CompoundTag section = new CompoundTag();
+            section.putByte("Y", (byte) y);
+            section.put("Palette", palette());
+            section.putLongArray("BlockStates", data(random));
+            sections.add(section);
+        }
+        level.put("Sections", sections);
+
+        final int[] biomes = new int[1024];
+        for (int i = 0; i < biomes.length; ++i) {
+            biomes[i] = 1; // plains
+        }
+        level.putIntArray("Biomes", biomes);
+        level.put("TileEntities", new ListTag());
+        level.put("Entities", new ListTag());
+        level.put("Heightmaps", new CompoundTag());
+
+        final CompoundTag root = new CompoundTag();
+        root.putInt("DataVersion", dataVersion);
+        root.put("Level", level);
+        return root;
+    }
+
+    private static CompoundTag modern(final int dataVersion, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final CompoundTag root = new CompoundTag();
+        root.putInt("DataVersion", dataVersion);
+        root.putInt("xPos", 0);
+        root.putInt("yPos", -4);
+        root.putInt("zPos", 0);
+        root.putString("Status", "minecraft:full");
+        root.putLong("InhabitedTime", 0L);
+
+        final ListTag sections = new ListTag();
+        for (int y = -4; y < 20; ++y) {
+            final CompoundTag blockStates = new CompoundTag();
+            blockStates.put("palette", palette());
+            blockStates.putLongArray("data", data(random));
+
+            final ListTag biomePalette = new ListTag();
+            biomePalette.add(StringTag.valueOf("minecraft:plains"));
+            final CompoundTag biomes = new CompoundTag();
+            biomes.put("palette", biomePalette);
+
+            final CompoundTag section = new CompoundTag();
+            section.putByte("Y", (byte) y);
+            section.put("block_states", blockStates);
+            section.put("biomes", biomes);
+            sections.add(section);
+        }
+        root.put("sections", sections);
+        root.put("block_entities", new ListTag());
+        root.put("Heightmaps", new CompoundTag());
+        root.put("structures", new CompoundTag());
+        return root;
+    }
+
+    private static ListTag palette() {
+        final ListTag palette = new ListTag();
+        for (final String block : BLOCKS) {
+            final CompoundTag entry = new CompoundTag();
+            entry.putString("Name", block);
+            if (block.equals("minecraft:water") || block.equals("minecraft:lava")) {
+                final CompoundTag properties = new CompoundTag();
+                properties.putString("level", "0");
+                entry.put("Properties", properties);
+            }
+            palette.add(entry);
+        }
+        return palette;
+    }
+
+    private static long[] data(final SplittableRandom random) {
+        final long[] data = new long[DATA_LONGS];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = random.nextLong();
+        }
+        return data;
+    }
+}
@@ -3,6 +3,7 @@ package io.papermc.paper.adventure;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.serialization.JavaOps;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.FastThreadLocal;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -244,11 +245,33 @@ public final class PaperAdventure {
     }
 
     private static final Map<Locale, com.mojang.serialization.Codec<Component>> LOCALIZED_CODECS = new ConcurrentHashMap<>();
+    private static final FastThreadLocal<boolean[]> RENDERED_FOR_LOCALE = new FastThreadLocal<>() {
+        @Override
+        protected boolean[] initialValue() {
+            return new boolean[1];
+        }
+    };
+
+    /**
+     * Forgets whether components were rendered for a locale on the current thread.
+     */
+    public static void resetRenderedForLocale() {
+        RENDERED_FOR_LOCALE.get()[0] = false;
+    }
+
+    /**
+     * Returns whether a component was encoded with a codec for a locale on the current thread since the last
+     * {@link #resetRenderedForLocale()}. Otherwise, what was encoded since does not depend on the locale.
+     */
+    public static boolean renderedForLocale() {
+        return RENDERED_FOR_LOCALE.get()[0];
+    }
 
     public static com.mojang.serialization.Codec<Component> localizedCodec(final @Nullable Locale l) {
         if (l == null) {
             return AdventureCodecs.COMPONENT_CODEC;
         }
+        RENDERED_FOR_LOCALE.get()[0] = true;
         return LOCALIZED_CODECS.computeIfAbsent(l, locale -> AdventureCodecs.COMPONENT_CODEC.xmap(
             component -> component, // decode
             component -> translated(component, locale) // encode
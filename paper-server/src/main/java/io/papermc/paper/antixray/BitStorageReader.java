@@ -1,7 +1,14 @@
 package io.papermc.paper.antixray;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
 public final class BitStorageReader {
 
+    // Accesses the 8 bytes of a long in the buffer at once, which compiles to a single (byte swapped) load or store
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     private byte[] buffer;
     private int bits;
     private int mask;
@@ -24,16 +31,16 @@ public final class BitStorageReader {
         init();
     }
 
+    public void setIndex(int index, int offset) {
+        int valuesPerLong = 64 / bits;
+        longInBufferIndex = index + (offset / valuesPerLong << 3);
+        bitInLongIndex = offset % valuesPerLong * bits;
+        init();
+    }
+
     private void init() {
         if (buffer.length > longInBufferIndex + 7) {
-            current = ((((long) buffer[longInBufferIndex]) << 56)
-                | (((long) buffer[longInBufferIndex + 1] & 0xff) << 48)
-                | (((long) buffer[longInBufferIndex + 2] & 0xff) << 40)
-                | (((long) buffer[longInBufferIndex + 3] & 0xff) << 32)
-                | (((long) buffer[longInBufferIndex + 4] & 0xff) << 24)
-                | (((long) buffer[longInBufferIndex + 5] & 0xff) << 16)
-                | (((long) buffer[longInBufferIndex + 6] & 0xff) << 8)
-                | (((long) buffer[longInBufferIndex + 7] & 0xff)));
+            current = (long) LONG.get(buffer, longInBufferIndex);
         }
     }
 
@@ -1,5 +1,8 @@
 package io.papermc.paper.antixray;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
 import io.papermc.paper.configuration.WorldConfiguration;
 import io.papermc.paper.configuration.type.EngineMode;
 import java.util.ArrayList;
@@ -8,8 +11,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.registries.Registries;
@@ -19,6 +27,7 @@ import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.level.ServerPlayerGameMode;
+import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.biome.Biomes;
@@ -33,9 +42,11 @@ import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.MissingPaletteEntryException;
 import net.minecraft.world.level.chunk.Palette;
 import org.bukkit.Bukkit;
+import org.slf4j.Logger;
 
 public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockController {
 
+    private static final Logger LOGGER = LogUtils.getClassLogger();
     private static final Palette<BlockState> GLOBAL_BLOCKSTATE_PALETTE = new GlobalPalette<>(Block.BLOCK_STATE_REGISTRY);
     private static final LevelChunkSection EMPTY_SECTION = null;
     private final Executor executor;
@@ -56,12 +67,21 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private final int[] presetBlockStateBitsEndStoneGlobal;
     private final boolean[] solidGlobal = new boolean[Block.BLOCK_STATE_REGISTRY.size()];
     private final boolean[] obfuscateGlobal = new boolean[Block.BLOCK_STATE_REGISTRY.size()];
+    private final boolean[] hiddenGlobal = new boolean[Block.BLOCK_STATE_REGISTRY.size()];
     private final LevelChunkSection[] emptyNearbyChunkSections = {EMPTY_SECTION, EMPTY_SECTION, EMPTY_SECTION, EMPTY_SECTION};
     private final int maxBlockHeightUpdatePosition;
+    private final RayTraceTracker rayTraceTracker;
+    // Maps the number of preset blocks to the index every random pick returns, so tests can compare obfuscated chunks
+    @VisibleForTesting
+    IntUnaryOperator fixedRandom;
 
     public ChunkPacketBlockControllerAntiXray(Level level, Executor executor) {
+        this(level.paperConfig().anticheat.antiXray, new EmptyLevelChunk(level, new ChunkPos(0, 0), MinecraftServer.getServer().registryAccess().lookupOrThrow(Registries.BIOME).getOrThrow(Biomes.PLAINS)), executor);
+    }
+
+    @VisibleForTesting
+    public ChunkPacketBlockControllerAntiXray(WorldConfiguration.Anticheat.AntiXray paperWorldConfig, BlockGetter emptyChunk, Executor executor) {
         this.executor = executor;
-        WorldConfiguration.Anticheat.AntiXray paperWorldConfig = level.paperConfig().anticheat.antiXray;
         engineMode = paperWorldConfig.engineMode;
         maxBlockHeight = paperWorldConfig.maxBlockHeight >> 4 << 4;
         updateRadius = paperWorldConfig.updateRadius;
@@ -126,7 +146,6 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
             }
         }
 
-        EmptyLevelChunk emptyChunk = new EmptyLevelChunk(level, new ChunkPos(0, 0), MinecraftServer.getServer().registryAccess().lookupOrThrow(Registries.BIOME).getOrThrow(Biomes.PLAINS));
         BlockPos zeroPos = new BlockPos(0, 0, 0);
 
         for (int i = 0; i < solidGlobal.length; i++) {
@@ -140,6 +159,22 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
             }
         }
 
+        if (engineMode == EngineMode.RAY_TRACE) {
+            for (Block block : paperWorldConfig.hiddenBlocks) {
+
+                // Same as above, block entities aren't replaced and air isn't hidden
+                if (block != null && !(block instanceof EntityBlock) && !block.defaultBlockState().isAir()) {
+                    for (BlockState blockState : block.getStateDefinition().getPossibleStates()) {
+                        hiddenGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)] = true;
+                    }
+                }
+            }
+
+            rayTraceTracker = new RayTraceTracker(solidGlobal, hiddenGlobal, maxBlockHeight, paperWorldConfig.rayTraceDistance, usePermission);
+        } else {
+            rayTraceTracker = null;
+        }
+
         maxBlockHeightUpdatePosition = maxBlockHeight + updateRadius - 1;
     }
 
@@ -169,7 +204,21 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
 
     @Override
     public boolean shouldModify(ServerPlayer player, LevelChunk chunk) {
-        return !usePermission || !player.getBukkitEntity().hasPermission("paper.antixray.bypass");
+        boolean shouldModify = !usePermission || !player.getBukkitEntity().hasPermission("paper.antixray.bypass");
+
+        if (shouldModify && rayTraceTracker != null) {
+            // The chunk is sent (again), so nothing in it is revealed to the player anymore
+            rayTraceTracker.onChunkSent(player, chunk);
+        }
+
+        return shouldModify;
+    }
+
+    @Override
+    public void tick(ServerLevel level) {
+        if (rayTraceTracker != null) {
+            rayTraceTracker.tick(level);
+        }
     }
 
     @Override
@@ -204,12 +253,32 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private final ThreadLocal<int[]> presetBlockStateBits = ThreadLocal.withInitial(() -> new int[getPresetBlockStatesFullLength()]);
     private static final ThreadLocal<boolean[]> SOLID = ThreadLocal.withInitial(() -> new boolean[Block.BLOCK_STATE_REGISTRY.size()]);
     private static final ThreadLocal<boolean[]> OBFUSCATE = ThreadLocal.withInitial(() -> new boolean[Block.BLOCK_STATE_REGISTRY.size()]);
+    private static final ThreadLocal<boolean[]> HIDDEN = ThreadLocal.withInitial(() -> new boolean[Block.BLOCK_STATE_REGISTRY.size()]);
     // These boolean arrays represent chunk layers, true means don't obfuscate, false means obfuscate
     private static final ThreadLocal<boolean[][]> CURRENT = ThreadLocal.withInitial(() -> new boolean[16][16]);
     private static final ThreadLocal<boolean[][]> NEXT = ThreadLocal.withInitial(() -> new boolean[16][16]);
     private static final ThreadLocal<boolean[][]> NEXT_NEXT = ThreadLocal.withInitial(() -> new boolean[16][16]);
 
     public void obfuscate(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
+        // engine-mode: 4 needs the unmodified blocks to find the hidden blocks that weren't obfuscated because they are exposed
+        byte[] unmodifiedBuffer = rayTraceTracker == null ? null : chunkPacketInfoAntiXray.getBuffer().clone();
+        ForkJoinPool sectionWorkers = SectionWorkers.POOL;
+
+        if (sectionWorkers != null) {
+            obfuscateParallel(chunkPacketInfoAntiXray, sectionWorkers);
+        } else {
+            obfuscateSerial(chunkPacketInfoAntiXray);
+        }
+
+        if (unmodifiedBuffer != null) {
+            hideExposedBlocks(chunkPacketInfoAntiXray, unmodifiedBuffer);
+        }
+
+        chunkPacketInfoAntiXray.getChunkPacket().setReady(true);
+    }
+
+    @VisibleForTesting
+    public void obfuscateSerial(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray) {
         int[] presetBlockStateBits = this.presetBlockStateBits.get();
         boolean[] solid = SOLID.get();
         boolean[] obfuscate = OBFUSCATE.get();
@@ -221,86 +290,21 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
         BitStorageWriter bitStorageWriter = new BitStorageWriter();
         LevelChunkSection[] nearbyChunkSections = new LevelChunkSection[4];
         LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
-        Level level = chunk.getLevel();
         int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
         boolean[] solidTemp = null;
         boolean[] obfuscateTemp = null;
         bitStorageReader.setBuffer(chunkPacketInfoAntiXray.getBuffer());
         bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
-        int numberOfBlocks = presetBlockStateBits.length;
-        // Keep the lambda expressions as simple as possible. They are used very frequently.
-        LayeredIntSupplier random = numberOfBlocks == 1 ? (() -> 0) : engineMode == EngineMode.OBFUSCATE_LAYER ? new LayeredIntSupplier() {
-            // engine-mode: 3
-            private int state;
-            private int next;
-
-            {
-                while ((state = ThreadLocalRandom.current().nextInt()) == 0) ;
-            }
-
-            @Override
-            public void nextLayer() {
-                // https://en.wikipedia.org/wiki/Xorshift
-                state ^= state << 13;
-                state ^= state >>> 17;
-                state ^= state << 5;
-                // https://www.pcg-random.org/posts/bounded-rands.html
-                next = (int) ((Integer.toUnsignedLong(state) * numberOfBlocks) >>> 32);
-            }
-
-            @Override
-            public int getAsInt() {
-                return next;
-            }
-        } : new LayeredIntSupplier() {
-            // engine-mode: 2
-            private int state;
-
-            {
-                while ((state = ThreadLocalRandom.current().nextInt()) == 0) ;
-            }
-
-            @Override
-            public int getAsInt() {
-                // https://en.wikipedia.org/wiki/Xorshift
-                state ^= state << 13;
-                state ^= state >>> 17;
-                state ^= state << 5;
-                // https://www.pcg-random.org/posts/bounded-rands.html
-                return (int) ((Integer.toUnsignedLong(state) * numberOfBlocks) >>> 32);
-            }
-        };
+        LayeredIntSupplier random = createRandom(presetBlockStateBits.length);
 
         for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
-            if (chunkPacketInfoAntiXray.isWritten(chunkSectionIndex) && chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) != null) {
-                int[] presetBlockStateBitsTemp;
-
-                if (chunkPacketInfoAntiXray.getPalette(chunkSectionIndex) instanceof GlobalPalette) {
-                    if (engineMode == EngineMode.HIDE) {
-                        presetBlockStateBitsTemp = switch (level.getWorld().getEnvironment()) {
-                            case NETHER -> presetBlockStateBitsNetherrackGlobal;
-                            case THE_END -> presetBlockStateBitsEndStoneGlobal;
-                            default -> chunkSectionIndex + chunk.getMinSectionY() < 0 ? presetBlockStateBitsDeepslateGlobal : presetBlockStateBitsStoneGlobal;
-                        };
-                    } else {
-                        presetBlockStateBitsTemp = presetBlockStateBitsGlobal;
-                    }
-                } else {
-                    // If it's presetBlockStates, use this.presetBlockStatesFull instead
-                    BlockState[] presetBlockStatesFull = chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) == presetBlockStates ? this.presetBlockStatesFull : chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex);
-                    presetBlockStateBitsTemp = presetBlockStateBits;
-
-                    for (int i = 0; i < presetBlockStateBitsTemp.length; i++) {
-                        // This is thread safe because we only request IDs that are guaranteed to be in the palette and are visible
-                        // For more details see the comments in the readPalette method
-                        presetBlockStateBitsTemp[i] = chunkPacketInfoAntiXray.getPalette(chunkSectionIndex).idFor(presetBlockStatesFull[i]);
-                    }
-                }
+            if (needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex)) {
+                int[] presetBlockStateBitsTemp = getPresetBlockStateBits(chunkPacketInfoAntiXray, chunkSectionIndex, presetBlockStateBits);
 
                 bitStorageWriter.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
 
                 // Check if the chunk section below was not obfuscated
-                if (chunkSectionIndex == 0 || !chunkPacketInfoAntiXray.isWritten(chunkSectionIndex - 1) || chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex - 1) == null) {
+                if (chunkSectionIndex == 0 || !needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex - 1)) {
                     // If so, initialize some stuff
                     bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
                     bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
@@ -339,7 +343,7 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
                 }
 
                 // Check if the chunk section above doesn't need obfuscation
-                if (chunkSectionIndex == maxChunkSectionIndex || !chunkPacketInfoAntiXray.isWritten(chunkSectionIndex + 1) || chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex + 1) == null) {
+                if (chunkSectionIndex == maxChunkSectionIndex || !needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex + 1)) {
                     // If so, obfuscate the upper layer of the current chunk section by reading blocks of the first layer from the chunk section above if it exists
                     LevelChunkSection aboveChunkSection;
 
@@ -380,8 +384,328 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
                 bitStorageWriter.flush();
             }
         }
+    }
 
-        chunkPacketInfoAntiXray.getChunkPacket().setReady(true);
+    /**
+     * Obfuscates the chunk sections of a chunk packet in parallel. Each section is obfuscated by its own task, which
+     * reads the blocks from a copy of the unmodified buffer and only writes to the data of its own section, so the
+     * result is the same as with {@link #obfuscateSerial(ChunkPacketInfoAntiXray)}.
+     */
+    @VisibleForTesting
+    public void obfuscateParallel(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, ForkJoinPool pool) {
+        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(maxChunkSectionIndex + 1);
+        byte[] unmodifiedBuffer = null;
+
+        for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
+            if (needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex)) {
+                if (unmodifiedBuffer == null) {
+                    unmodifiedBuffer = chunkPacketInfoAntiXray.getBuffer().clone();
+                }
+
+                int index = chunkSectionIndex;
+                byte[] buffer = unmodifiedBuffer;
+                tasks.add(ForkJoinTask.adapt(() -> obfuscateSection(chunkPacketInfoAntiXray, index, maxChunkSectionIndex, buffer)));
+            }
+        }
+
+        if (tasks.size() < 2) {
+            // Nothing to split up
+            obfuscateSerial(chunkPacketInfoAntiXray);
+            return;
+        }
+
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private void obfuscateSection(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, int chunkSectionIndex, int maxChunkSectionIndex, byte[] unmodifiedBuffer) {
+        int[] presetBlockStateBits = this.presetBlockStateBits.get();
+        boolean[] solid = SOLID.get();
+        boolean[] obfuscate = OBFUSCATE.get();
+        boolean[][] current = CURRENT.get();
+        boolean[][] next = NEXT.get();
+        boolean[][] nextNext = NEXT_NEXT.get();
+        BitStorageReader bitStorageReader = new BitStorageReader();
+        BitStorageWriter bitStorageWriter = new BitStorageWriter();
+        LevelChunkSection[] nearbyChunkSections = new LevelChunkSection[4];
+        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+        boolean[] solidTemp;
+        boolean[] obfuscateTemp;
+        bitStorageReader.setBuffer(unmodifiedBuffer);
+        bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        LayeredIntSupplier random = createRandom(presetBlockStateBits.length);
+        int[] presetBlockStateBitsTemp = getPresetBlockStateBits(chunkPacketInfoAntiXray, chunkSectionIndex, presetBlockStateBits);
+        bitStorageWriter.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
+        bitStorageWriter.setBits(0);
+
+        // Check if the chunk section below is not obfuscated
+        if (chunkSectionIndex == 0 || !needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex - 1)) {
+            // If so, initialize some stuff like the serial path does
+            bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
+            bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
+            solidTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), solid, solidGlobal);
+            obfuscateTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), obfuscate, obfuscateGlobal);
+            LevelChunkSection belowChunkSection = null;
+            boolean skipFirstLayer = chunkSectionIndex == 0 || (belowChunkSection = chunk.getSections()[chunkSectionIndex - 1]) == EMPTY_SECTION;
+
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    current[z][x] = true;
+                    next[z][x] = skipFirstLayer || isTransparent(belowChunkSection, x, 15, z);
+                }
+            }
+
+            obfuscateLayer(-1, bitStorageReader, bitStorageWriter, solidTemp, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, emptyNearbyChunkSections, random);
+        } else {
+            // If not, replay the two upper layers of the chunk section below without writing anything
+            // The layers are fully overwritten after two layers, so this results in the state the serial path would be in
+            bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex - 1));
+            bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex - 1), 15 << 8);
+            solidTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex - 1), solid, solidGlobal);
+            obfuscateTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex - 1), obfuscate, obfuscateGlobal);
+            obfuscateLayer(14, bitStorageReader, bitStorageWriter, solidTemp, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, emptyNearbyChunkSections, random);
+            bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
+            bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex));
+            solidTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), solid, solidGlobal);
+            obfuscateTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex), obfuscate, obfuscateGlobal);
+            boolean[][] temp = current;
+            current = next;
+            next = nextNext;
+            nextNext = temp;
+            obfuscateLayer(15, bitStorageReader, bitStorageWriter, solidTemp, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, emptyNearbyChunkSections, random);
+        }
+
+        bitStorageWriter.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex));
+        nearbyChunkSections[0] = chunkPacketInfoAntiXray.getNearbyChunks()[0] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[0].getSections()[chunkSectionIndex];
+        nearbyChunkSections[1] = chunkPacketInfoAntiXray.getNearbyChunks()[1] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[1].getSections()[chunkSectionIndex];
+        nearbyChunkSections[2] = chunkPacketInfoAntiXray.getNearbyChunks()[2] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[2].getSections()[chunkSectionIndex];
+        nearbyChunkSections[3] = chunkPacketInfoAntiXray.getNearbyChunks()[3] == null ? EMPTY_SECTION : chunkPacketInfoAntiXray.getNearbyChunks()[3].getSections()[chunkSectionIndex];
+
+        // Obfuscate all layers of the current chunk section except the upper one
+        for (int y = 0; y < 15; y++) {
+            boolean[][] temp = current;
+            current = next;
+            next = nextNext;
+            nextNext = temp;
+            random.nextLayer();
+            obfuscateLayer(y, bitStorageReader, bitStorageWriter, solidTemp, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, nearbyChunkSections, random);
+        }
+
+        // Check if the chunk section above doesn't need obfuscation
+        if (chunkSectionIndex == maxChunkSectionIndex || !needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex + 1)) {
+            // If so, obfuscate the upper layer of the current chunk section by reading blocks of the first layer from the chunk section above if it exists
+            LevelChunkSection aboveChunkSection;
+
+            if (chunkSectionIndex != chunk.getSectionsCount() - 1 && (aboveChunkSection = chunk.getSections()[chunkSectionIndex + 1]) != EMPTY_SECTION) {
+                boolean[][] temp = current;
+                current = next;
+                next = nextNext;
+                nextNext = temp;
+
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (isTransparent(aboveChunkSection, x, 0, z)) {
+                            current[z][x] = true;
+                        }
+                    }
+                }
+
+                // There is nothing to read anymore
+                bitStorageReader.setBits(0);
+                solid[0] = true;
+                random.nextLayer();
+                obfuscateLayer(15, bitStorageReader, bitStorageWriter, solid, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, nearbyChunkSections, random);
+            }
+        } else {
+            // If not, read the first layer of the chunk section above from the unmodified buffer to obfuscate the upper layer of the current chunk section
+            bitStorageReader.setBits(chunkPacketInfoAntiXray.getBits(chunkSectionIndex + 1));
+            bitStorageReader.setIndex(chunkPacketInfoAntiXray.getIndex(chunkSectionIndex + 1));
+            solidTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex + 1), solid, solidGlobal);
+            obfuscateTemp = readPalette(chunkPacketInfoAntiXray.getPalette(chunkSectionIndex + 1), obfuscate, obfuscateGlobal);
+            boolean[][] temp = current;
+            current = next;
+            next = nextNext;
+            nextNext = temp;
+            random.nextLayer();
+            obfuscateLayer(15, bitStorageReader, bitStorageWriter, solidTemp, obfuscateTemp, presetBlockStateBitsTemp, current, next, nextNext, nearbyChunkSections, random);
+        }
+
+        bitStorageWriter.flush();
+    }
+
+    /**
+     * Replaces the exposed hidden blocks of the obfuscated chunk sections, which are left as they are by the obfuscation,
+     * with stone (or a similar block) until {@link RayTraceTracker} reveals them to the player.
+     */
+    private void hideExposedBlocks(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, byte[] unmodifiedBuffer) {
+        boolean[] hidden = HIDDEN.get();
+        BitStorageReader unmodifiedReader = new BitStorageReader();
+        BitStorageReader obfuscatedReader = new BitStorageReader();
+        BitStorageWriter bitStorageWriter = new BitStorageWriter();
+        LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunk.getSectionsCount()) - 1;
+        unmodifiedReader.setBuffer(unmodifiedBuffer);
+        obfuscatedReader.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+        bitStorageWriter.setBuffer(chunkPacketInfoAntiXray.getBuffer());
+
+        for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
+            if (!needsObfuscation(chunkPacketInfoAntiXray, chunkSectionIndex)) {
+                continue;
+            }
+
+            Palette<BlockState> palette = chunkPacketInfoAntiXray.getPalette(chunkSectionIndex);
+            int replacementBits = getReplacementBits(palette, chunk, chunkSectionIndex);
+
+            if (replacementBits == -1) {
+                // The palette only contains hidden blocks, so they can't be replaced, see the ray-trace-distance comment
+                continue;
+            }
+
+            boolean[] hiddenTemp = readPalette(palette, hidden, hiddenGlobal);
+            int bits = chunkPacketInfoAntiXray.getBits(chunkSectionIndex);
+            int index = chunkPacketInfoAntiXray.getIndex(chunkSectionIndex);
+            unmodifiedReader.setBits(bits);
+            unmodifiedReader.setIndex(index);
+            obfuscatedReader.setBits(bits);
+            obfuscatedReader.setIndex(index);
+            bitStorageWriter.setBits(bits);
+            bitStorageWriter.setIndex(index);
+
+            for (int i = 0; i < 4096; i++) {
+                int unmodifiedBits = unmodifiedReader.read();
+
+                // Blocks that are still the same either weren't obfuscated because they are exposed or were replaced with themselves
+                // Replacing the latter too is fine since they can't be seen anyway
+                if (obfuscatedReader.read() == unmodifiedBits && hiddenTemp[unmodifiedBits]) {
+                    bitStorageWriter.write(replacementBits);
+                } else {
+                    bitStorageWriter.skip();
+                }
+            }
+
+            bitStorageWriter.flush();
+        }
+    }
+
+    private int getReplacementBits(Palette<BlockState> palette, LevelChunk chunk, int chunkSectionIndex) {
+        BlockState replacementBlockState = switch (chunk.getLevel().getWorld().getEnvironment()) {
+            case NETHER -> Blocks.NETHERRACK.defaultBlockState();
+            case THE_END -> Blocks.END_STONE.defaultBlockState();
+            default -> chunkSectionIndex + chunk.getMinSectionY() < 0 ? Blocks.DEEPSLATE.defaultBlockState() : Blocks.STONE.defaultBlockState();
+        };
+
+        if (palette instanceof GlobalPalette) {
+            return GLOBAL_BLOCKSTATE_PALETTE.idFor(replacementBlockState);
+        }
+
+        // Blocks can't be added to the palette here, so use the replacement block if it's in the palette or otherwise any solid block that isn't hidden
+        // Failing that, any other block that isn't hidden still doesn't give the hidden block away
+        int replacementBits = -1;
+        int fallbackBits = -1;
+
+        try {
+            for (int i = 0; i < palette.getSize(); i++) {
+                BlockState blockState = palette.valueFor(i);
+
+                if (blockState == replacementBlockState) {
+                    return i;
+                }
+
+                int globalBits = GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState);
+
+                if (replacementBits == -1 && solidGlobal[globalBits] && !hiddenGlobal[globalBits]) {
+                    replacementBits = i;
+                } else if (fallbackBits == -1 && !hiddenGlobal[globalBits]) {
+                    fallbackBits = i;
+                }
+            }
+        } catch (MissingPaletteEntryException e) {
+            // Race condition / visibility issue / no happens-before relationship
+            // See the comments in the readPalette method
+        }
+
+        return replacementBits == -1 ? fallbackBits : replacementBits;
+    }
+
+    private boolean needsObfuscation(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, int chunkSectionIndex) {
+        return chunkPacketInfoAntiXray.isWritten(chunkSectionIndex) && chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) != null;
+    }
+
+    private int[] getPresetBlockStateBits(ChunkPacketInfoAntiXray chunkPacketInfoAntiXray, int chunkSectionIndex, int[] presetBlockStateBits) {
+        if (chunkPacketInfoAntiXray.getPalette(chunkSectionIndex) instanceof GlobalPalette) {
+            if (engineMode == EngineMode.HIDE) {
+                LevelChunk chunk = chunkPacketInfoAntiXray.getChunk();
+                return switch (chunk.getLevel().getWorld().getEnvironment()) {
+                    case NETHER -> presetBlockStateBitsNetherrackGlobal;
+                    case THE_END -> presetBlockStateBitsEndStoneGlobal;
+                    default -> chunkSectionIndex + chunk.getMinSectionY() < 0 ? presetBlockStateBitsDeepslateGlobal : presetBlockStateBitsStoneGlobal;
+                };
+            }
+
+            return presetBlockStateBitsGlobal;
+        }
+
+        // If it's presetBlockStates, use this.presetBlockStatesFull instead
+        BlockState[] presetBlockStatesFull = chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex) == presetBlockStates ? this.presetBlockStatesFull : chunkPacketInfoAntiXray.getPresetValues(chunkSectionIndex);
+
+        for (int i = 0; i < presetBlockStateBits.length; i++) {
+            // This is thread safe because we only request IDs that are guaranteed to be in the palette and are visible
+            // For more details see the comments in the readPalette method
+            presetBlockStateBits[i] = chunkPacketInfoAntiXray.getPalette(chunkSectionIndex).idFor(presetBlockStatesFull[i]);
+        }
+
+        return presetBlockStateBits;
+    }
+
+    private LayeredIntSupplier createRandom(int numberOfBlocks) {
+        if (fixedRandom != null) {
+            int index = fixedRandom.applyAsInt(numberOfBlocks);
+            return () -> index;
+        }
+
+        // Keep the lambda expressions as simple as possible. They are used very frequently.
+        return numberOfBlocks == 1 ? (() -> 0) : engineMode == EngineMode.OBFUSCATE_LAYER ? new LayeredIntSupplier() {
+            // engine-mode: 3
+            private int state;
+            private int next;
+
+            {
+                while ((state = ThreadLocalRandom.current().nextInt()) == 0) ;
+            }
+
+            @Override
+            public void nextLayer() {
+                // https://en.wikipedia.org/wiki/Xorshift
+                state ^= state << 13;
+                state ^= state >>> 17;
+                state ^= state << 5;
+                // https://www.pcg-random.org/posts/bounded-rands.html
+                next = (int) ((Integer.toUnsignedLong(state) * numberOfBlocks) >>> 32);
+            }
+
+            @Override
+            public int getAsInt() {
+                return next;
+            }
+        } : new LayeredIntSupplier() {
+            // engine-mode: 2
+            private int state;
+
+            {
+                while ((state = ThreadLocalRandom.current().nextInt()) == 0) ;
+            }
+
+            @Override
+            public int getAsInt() {
+                // https://en.wikipedia.org/wiki/Xorshift
+                state ^= state << 13;
+                state ^= state >>> 17;
+                state ^= state << 5;
+                // https://www.pcg-random.org/posts/bounded-rands.html
+                return (int) ((Integer.toUnsignedLong(state) * numberOfBlocks) >>> 32);
+            }
+        };
     }
 
     private void obfuscateLayer(int y, BitStorageReader bitStorageReader, BitStorageWriter bitStorageWriter, boolean[] solid, boolean[] obfuscate, int[] presetBlockStateBits, boolean[][] current, boolean[][] next, boolean[][] nextNext, LevelChunkSection[] nearbyChunkSections, IntSupplier random) {
@@ -608,6 +932,10 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
 
     @Override
     public void onBlockChange(Level level, BlockPos blockPos, BlockState newBlockState, BlockState oldBlockState, int flags, int maxUpdateDepth) {
+        if (rayTraceTracker != null) {
+            rayTraceTracker.onBlockChange(blockPos);
+        }
+
         if (oldBlockState != null && solidGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(oldBlockState)] && !solidGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(newBlockState)] && blockPos.getY() <= maxBlockHeightUpdatePosition) {
             updateNearbyBlocks(level, blockPos);
         }
@@ -662,7 +990,8 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
     private void updateBlock(Level level, BlockPos blockPos) {
         BlockState blockState = level.getBlockStateIfLoaded(blockPos);
 
-        if (blockState != null && obfuscateGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)]) {
+        // In engine-mode: 4 hidden blocks are only revealed by the ray trace tracker once they can be seen
+        if (blockState != null && obfuscateGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)] && (rayTraceTracker == null || !hiddenGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)])) {
             ((ServerLevel) level).getChunkSource().blockChanged(blockPos);
         }
     }
@@ -673,4 +1002,25 @@ public final class ChunkPacketBlockControllerAntiXray extends ChunkPacketBlockCo
 
         }
     }
+
+    private static final class SectionWorkers {
+
+        private static final ForkJoinPool POOL = createPool();
+
+        private static ForkJoinPool createPool() {
+            int configured = GlobalConfiguration.get().anticheat.antiXray.sectionThreads;
+            int threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
+            if (threads <= 1) {
+                return null;
+            }
+
+            AtomicInteger threadId = new AtomicInteger();
+            return new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Paper Anti-Xray Worker #" + threadId.getAndIncrement());
+                return thread;
+            }, new net.minecraft.DefaultUncaughtExceptionHandlerWithName(LOGGER), false);
+        }
+    }
 }
@@ -0,0 +1,539 @@
+package io.papermc.paper.antixray;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
+import it.unimi.dsi.fastutil.shorts.ShortSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.GlobalPalette;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.Palette;
+import net.minecraft.world.phys.Vec3;
+import org.slf4j.Logger;
+
+/**
+ * Reveals the hidden blocks of engine-mode 4 to a player once they are in the line of sight of the player's eyes.
+ * <p>
+ * Every tick, the eye positions of the players of a level and the chunks around them are handed to a worker thread.
+ * For each player who moved, or whose nearby chunks changed, the worker traces rays from the eyes to the hidden blocks
+ * which are exposed to a transparent block and haven't been revealed to the player yet. The blocks found to be visible
+ * are sent to the player on the main thread, batched into one section blocks update packet per chunk section.
+ * Everything revealed in a chunk is hidden again when the chunk is sent to the player again.
+ * <p>
+ * The worker reads the chunk sections while the main thread changes them. The exposed hidden blocks of a chunk are
+ * only searched again once a block in it or next to it changed, or if reading the chunk failed the last time.
+ */
+final class RayTraceTracker {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final Palette<BlockState> GLOBAL_BLOCKSTATE_PALETTE = new GlobalPalette<>(Block.BLOCK_STATE_REGISTRY);
+    // The eyes have to move at least a quarter block before all blocks around the player are traced again
+    private static final double MIN_MOVEMENT_SQUARED = 0.25 * 0.25;
+    // Rays to the corners of a face end slightly inside the face, so they don't graze the edges of the neighbouring blocks
+    private static final double CORNER_OFFSET = 0.5 - 0.05;
+    private final boolean[] solidGlobal;
+    private final boolean[] hiddenGlobal;
+    private final int maxBlockHeight;
+    private final int distance;
+    private final boolean usePermission;
+    private final AtomicBoolean tracing = new AtomicBoolean();
+    private final Queue<SentChunk> sentChunks = new ConcurrentLinkedQueue<>();
+    private final Queue<Reveal> reveals = new ConcurrentLinkedQueue<>();
+    // Only accessed on the main thread
+    private LongSet changedChunks = new LongOpenHashSet();
+    // Everything below is only accessed on the worker thread
+    private final Long2ObjectMap<Candidates> candidates = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<BlockVersion> blockVersions = new Long2ObjectOpenHashMap<>();
+    private long nextBlockVersion;
+    private final Reference2ObjectOpenHashMap<ServerPlayer, PlayerState> playerStates = new Reference2ObjectOpenHashMap<>();
+    private Long2ObjectMap<LevelChunk> chunks;
+    private long lastChunkKey = Long.MIN_VALUE;
+    private LevelChunk lastChunk;
+    private long nextStamp;
+
+    RayTraceTracker(boolean[] solidGlobal, boolean[] hiddenGlobal, int maxBlockHeight, int distance, boolean usePermission) {
+        this.solidGlobal = solidGlobal;
+        this.hiddenGlobal = hiddenGlobal;
+        this.maxBlockHeight = maxBlockHeight;
+        this.distance = Math.max(0, distance);
+        this.usePermission = usePermission;
+    }
+
+    void onChunkSent(ServerPlayer player, LevelChunk chunk) {
+        if (chunk != null) {
+            sentChunks.add(new SentChunk(player, chunk.getPos().toLong()));
+        }
+    }
+
+    void onBlockChange(BlockPos blockPos) {
+        changedChunks.add(ChunkPos.asLong(blockPos.getX() >> 4, blockPos.getZ() >> 4));
+    }
+
+    void tick(ServerLevel level) {
+        Reveal reveal;
+
+        while ((reveal = reveals.poll()) != null) {
+            send(level, reveal);
+        }
+
+        if (!tracing.compareAndSet(false, true)) {
+            // The worker is still tracing the players of a previous tick
+            return;
+        }
+
+        List<ServerPlayer> players = level.players();
+        List<View> views = new ArrayList<>(players.size());
+        Long2ObjectMap<LevelChunk> chunks = new Long2ObjectOpenHashMap<>();
+        // The chunks next to the traced ones are needed as well to know whether their blocks at the edges are exposed
+        int chunkRadius = ((distance + 15) >> 4) + 1;
+
+        for (ServerPlayer player : players) {
+            if (player.connection == null || player.hasDisconnected() || usePermission && player.getBukkitEntity().hasPermission("paper.antixray.bypass")) {
+                continue;
+            }
+
+            Vec3 eyes = player.getEyePosition();
+            views.add(new View(player, eyes.x, eyes.y, eyes.z));
+            int chunkX = Mth.floor(eyes.x) >> 4;
+            int chunkZ = Mth.floor(eyes.z) >> 4;
+
+            for (int z = chunkZ - chunkRadius; z <= chunkZ + chunkRadius; z++) {
+                for (int x = chunkX - chunkRadius; x <= chunkX + chunkRadius; x++) {
+                    long chunkKey = ChunkPos.asLong(x, z);
+
+                    if (!chunks.containsKey(chunkKey)) {
+                        LevelChunk chunk = level.getChunkIfLoaded(x, z);
+
+                        if (chunk != null) {
+                            chunks.put(chunkKey, chunk);
+                        }
+                    }
+                }
+            }
+        }
+
+        LongSet changedChunks = this.changedChunks;
+        this.changedChunks = new LongOpenHashSet();
+
+        try {
+            Worker.EXECUTOR.execute(() -> {
+                try {
+                    trace(views, chunks, changedChunks);
+                } finally {
+                    tracing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.changedChunks.addAll(changedChunks);
+            tracing.set(false);
+        }
+    }
+
+    private void send(ServerLevel level, Reveal reveal) {
+        ServerPlayer player = reveal.player();
+
+        if (player.connection == null || player.hasDisconnected() || player.level() != level) {
+            return;
+        }
+
+        for (Long2ObjectMap.Entry<ShortSet> entry : reveal.sections().long2ObjectEntrySet()) {
+            SectionPos sectionPos = SectionPos.of(entry.getLongKey());
+            LevelChunk chunk = level.getChunkIfLoaded(sectionPos.x(), sectionPos.z());
+
+            if (chunk != null) {
+                // The packet reads the current block states from the section
+                player.connection.send(new ClientboundSectionBlocksUpdatePacket(sectionPos, entry.getValue(), chunk.getSection(chunk.getSectionIndexFromSectionY(sectionPos.y()))));
+            }
+        }
+    }
+
+    private void trace(List<View> views, Long2ObjectMap<LevelChunk> chunks, LongSet changedChunks) {
+        this.chunks = chunks;
+        lastChunkKey = Long.MIN_VALUE;
+        lastChunk = null;
+
+        try {
+            for (long chunkKey : changedChunks) {
+                BlockVersion blockVersion = blockVersions.get(chunkKey);
+
+                if (blockVersion != null) {
+                    blockVersion.version = nextBlockVersion++;
+                }
+            }
+
+            SentChunk sentChunk;
+
+            while ((sentChunk = sentChunks.poll()) != null) {
+                PlayerState playerState = playerStates.get(sentChunk.player());
+
+                if (playerState != null) {
+                    // The client has the obfuscated blocks again
+                    playerState.revealed.remove(sentChunk.chunkKey());
+                    playerState.tracedStamps.remove(sentChunk.chunkKey());
+                }
+            }
+
+            Set<ServerPlayer> players = new ReferenceOpenHashSet<>(views.size());
+
+            for (View view : views) {
+                players.add(view.player());
+                trace(view, playerStates.computeIfAbsent(view.player(), player -> new PlayerState()));
+            }
+
+            // Forget players who left the level and chunks which are no longer around any player
+            playerStates.keySet().retainAll(players);
+            candidates.long2ObjectEntrySet().removeIf(entry -> !chunks.containsKey(entry.getLongKey()));
+            blockVersions.long2ObjectEntrySet().removeIf(entry -> !chunks.containsKey(entry.getLongKey()));
+        } finally {
+            this.chunks = null;
+            lastChunk = null;
+        }
+    }
+
+    private void trace(View view, PlayerState playerState) {
+        double movedX = view.x() - playerState.x;
+        double movedY = view.y() - playerState.y;
+        double movedZ = view.z() - playerState.z;
+        // Also true if the player wasn't traced yet, the coordinates are NaN then
+        boolean moved = !(movedX * movedX + movedY * movedY + movedZ * movedZ < MIN_MOVEMENT_SQUARED);
+
+        if (moved) {
+            playerState.x = view.x();
+            playerState.y = view.y();
+            playerState.z = view.z();
+        }
+
+        double distanceSquared = (double) distance * distance;
+        int minChunkX = Mth.floor(view.x() - distance) >> 4;
+        int maxChunkX = Mth.floor(view.x() + distance) >> 4;
+        int minChunkZ = Mth.floor(view.z() - distance) >> 4;
+        int maxChunkZ = Mth.floor(view.z() + distance) >> 4;
+        Long2ObjectMap<ShortSet> sections = new Long2ObjectOpenHashMap<>();
+
+        for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                long chunkKey = ChunkPos.asLong(chunkX, chunkZ);
+                LevelChunk chunk = chunks.get(chunkKey);
+
+                if (chunk == null) {
+                    continue;
+                }
+
+                Candidates candidates = getCandidates(chunkKey, chunk);
+
+                // If the player didn't move, only the chunks which changed since the last trace need to be traced again
+                if (playerState.tracedStamps.put(chunkKey, candidates.stamp) == candidates.stamp && !moved || candidates.positions.length == 0) {
+                    continue;
+                }
+
+                LongSet revealed = playerState.revealed.computeIfAbsent(chunkKey, key -> new LongOpenHashSet());
+
+                for (long blockPos : candidates.positions) {
+                    int x = BlockPos.getX(blockPos);
+                    int y = BlockPos.getY(blockPos);
+                    int z = BlockPos.getZ(blockPos);
+                    double dx = x + 0.5 - view.x();
+                    double dy = y + 0.5 - view.y();
+                    double dz = z + 0.5 - view.z();
+
+                    if (dx * dx + dy * dy + dz * dz > distanceSquared || revealed.contains(blockPos) || !isVisible(view, x, y, z)) {
+                        continue;
+                    }
+
+                    revealed.add(blockPos);
+                    sections.computeIfAbsent(SectionPos.asLong(x >> 4, y >> 4, z >> 4), key -> new ShortOpenHashSet()).add(SectionPos.sectionRelativePos(new BlockPos(x, y, z)));
+                }
+            }
+        }
+
+        playerState.revealed.long2ObjectEntrySet().removeIf(entry -> !chunks.containsKey(entry.getLongKey()));
+        playerState.tracedStamps.long2LongEntrySet().removeIf(entry -> !chunks.containsKey(entry.getLongKey()));
+
+        if (!sections.isEmpty()) {
+            reveals.add(new Reveal(view.player(), sections));
+        }
+    }
+
+    private Candidates getCandidates(long chunkKey, LevelChunk chunk) {
+        int chunkX = ChunkPos.getX(chunkKey);
+        int chunkZ = ChunkPos.getZ(chunkKey);
+        // Blocks at the edges of the chunk are exposed or covered depending on the chunks next to it
+        long[] versions = {
+            getBlockVersion(chunkKey),
+            getBlockVersion(ChunkPos.asLong(chunkX - 1, chunkZ)),
+            getBlockVersion(ChunkPos.asLong(chunkX + 1, chunkZ)),
+            getBlockVersion(ChunkPos.asLong(chunkX, chunkZ - 1)),
+            getBlockVersion(ChunkPos.asLong(chunkX, chunkZ + 1))
+        };
+        Candidates candidates = this.candidates.get(chunkKey);
+
+        if (candidates != null && candidates.complete() && Arrays.equals(candidates.versions(), versions)) {
+            return candidates;
+        }
+
+        boolean complete = true;
+
+        LongArrayList positions = new LongArrayList();
+        LevelChunkSection[] chunkSections = chunk.getSections();
+        int maxChunkSectionIndex = Math.min((maxBlockHeight >> 4) - chunk.getMinSectionY(), chunkSections.length) - 1;
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+
+        for (int chunkSectionIndex = 0; chunkSectionIndex <= maxChunkSectionIndex; chunkSectionIndex++) {
+            LevelChunkSection chunkSection = chunkSections[chunkSectionIndex];
+
+            if (chunkSection == null || chunkSection.hasOnlyAir()) {
+                continue;
+            }
+
+            int minY = (chunk.getMinSectionY() + chunkSectionIndex) << 4;
+
+            try {
+                // Most chunk sections don't contain any hidden blocks
+                if (!chunkSection.getStates().maybeHas(blockState -> hiddenGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(blockState)])) {
+                    continue;
+                }
+
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            if (hiddenGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(chunkSection.getBlockState(x, y, z))] && isExposed(minX + x, minY + y, minZ + z)) {
+                                positions.add(BlockPos.asLong(minX + x, minY + y, minZ + z));
+                            }
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Race condition / visibility issue / no happens-before relationship
+                // The chunk section is being changed, e.g. its palette is resized, so the chunk is read again next time
+                complete = false;
+            }
+        }
+
+        candidates = new Candidates(versions, complete, nextStamp++, positions.toLongArray());
+        this.candidates.put(chunkKey, candidates);
+        return candidates;
+    }
+
+    private long getBlockVersion(long chunkKey) {
+        LevelChunk chunk = chunks.get(chunkKey);
+
+        if (chunk == null) {
+            return Long.MIN_VALUE;
+        }
+
+        BlockVersion blockVersion = blockVersions.get(chunkKey);
+
+        // A chunk which was unloaded and loaded again in the meantime may have changed as well
+        if (blockVersion == null || blockVersion.chunk != chunk) {
+            blockVersion = new BlockVersion(chunk, nextBlockVersion++);
+            blockVersions.put(chunkKey, blockVersion);
+        }
+
+        return blockVersion.version;
+    }
+
+    private boolean isExposed(int x, int y, int z) {
+        return !isSolid(x - 1, y, z) || !isSolid(x + 1, y, z) || !isSolid(x, y - 1, z) || !isSolid(x, y + 1, z) || !isSolid(x, y, z - 1) || !isSolid(x, y, z + 1);
+    }
+
+    private boolean isVisible(View view, int x, int y, int z) {
+        // Try the center of the block first, it's visible through most openings
+        if (isInLineOfSight(view, x + 0.5, y + 0.5, z + 0.5, x, y, z)) {
+            return true;
+        }
+
+        // Otherwise try the centers and corners of all exposed faces facing the eyes
+        for (int face = 0; face < 6; face++) {
+            int stepX = face == 0 ? -1 : face == 1 ? 1 : 0;
+            int stepY = face == 2 ? -1 : face == 3 ? 1 : 0;
+            int stepZ = face == 4 ? -1 : face == 5 ? 1 : 0;
+            double faceX = x + 0.5 + stepX * 0.5;
+            double faceY = y + 0.5 + stepY * 0.5;
+            double faceZ = z + 0.5 + stepZ * 0.5;
+
+            if ((view.x() - faceX) * stepX + (view.y() - faceY) * stepY + (view.z() - faceZ) * stepZ <= 0 || isSolid(x + stepX, y + stepY, z + stepZ)) {
+                continue;
+            }
+
+            for (int point = 0; point < 5; point++) {
+                // The center and the four corners
+                double u = point == 0 ? 0 : (point & 1) == 0 ? CORNER_OFFSET : -CORNER_OFFSET;
+                double v = point == 0 ? 0 : point < 3 ? CORNER_OFFSET : -CORNER_OFFSET;
+                double toX = faceX + (stepX == 0 ? u : 0);
+                double toY = faceY + (stepX != 0 ? u : stepY == 0 ? v : 0);
+                double toZ = faceZ + (stepZ == 0 ? v : 0);
+
+                if (isInLineOfSight(view, toX, toY, toZ, x, y, z)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isInLineOfSight(View view, double toX, double toY, double toZ, int targetX, int targetY, int targetZ) {
+        // https://www.cse.yorku.ca/~amana/research/grid.pdf
+        // Walks through all blocks the ray from the eyes to the point passes, the block containing the eyes is skipped
+        double dx = toX - view.x();
+        double dy = toY - view.y();
+        double dz = toZ - view.z();
+        int x = Mth.floor(view.x());
+        int y = Mth.floor(view.y());
+        int z = Mth.floor(view.z());
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+        double deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+        double maxX = stepX > 0 ? (x + 1 - view.x()) * deltaX : stepX < 0 ? (view.x() - x) * deltaX : Double.POSITIVE_INFINITY;
+        double maxY = stepY > 0 ? (y + 1 - view.y()) * deltaY : stepY < 0 ? (view.y() - y) * deltaY : Double.POSITIVE_INFINITY;
+        double maxZ = stepZ > 0 ? (z + 1 - view.z()) * deltaZ : stepZ < 0 ? (view.z() - z) * deltaZ : Double.POSITIVE_INFINITY;
+
+        while (true) {
+            if (maxX < maxY && maxX < maxZ) {
+                if (maxX >= 1) {
+                    return true;
+                }
+
+                x += stepX;
+                maxX += deltaX;
+            } else if (maxY < maxZ) {
+                if (maxY >= 1) {
+                    return true;
+                }
+
+                y += stepY;
+                maxY += deltaY;
+            } else {
+                if (maxZ >= 1) {
+                    return true;
+                }
+
+                z += stepZ;
+                maxZ += deltaZ;
+            }
+
+            if (x == targetX && y == targetY && z == targetZ) {
+                return true;
+            }
+
+            if (isSolid(x, y, z)) {
+                return false;
+            }
+        }
+    }
+
+    private boolean isSolid(int x, int y, int z) {
+        long chunkKey = ChunkPos.asLong(x >> 4, z >> 4);
+        LevelChunk chunk;
+
+        if (chunkKey == lastChunkKey) {
+            chunk = lastChunk;
+        } else {
+            chunk = chunks.get(chunkKey);
+            lastChunkKey = chunkKey;
+            lastChunk = chunk;
+        }
+
+        if (chunk == null) {
+            return false;
+        }
+
+        int chunkSectionIndex = (y >> 4) - chunk.getMinSectionY();
+        LevelChunkSection[] chunkSections = chunk.getSections();
+
+        if (chunkSectionIndex < 0 || chunkSectionIndex >= chunkSections.length || chunkSections[chunkSectionIndex] == null) {
+            return false;
+        }
+
+        try {
+            return solidGlobal[GLOBAL_BLOCKSTATE_PALETTE.idFor(chunkSections[chunkSectionIndex].getBlockState(x & 15, y & 15, z & 15))];
+        } catch (RuntimeException e) {
+            // Race condition / visibility issue / no happens-before relationship
+            // We don't care and treat the block as transparent, like ChunkPacketBlockControllerAntiXray#isTransparent
+            return false;
+        }
+    }
+
+    private record View(ServerPlayer player, double x, double y, double z) {
+    }
+
+    private record SentChunk(ServerPlayer player, long chunkKey) {
+    }
+
+    private record Reveal(ServerPlayer player, Long2ObjectMap<ShortSet> sections) {
+    }
+
+    private record Candidates(long[] versions, boolean complete, long stamp, long[] positions) {
+    }
+
+    private static final class BlockVersion {
+
+        private final LevelChunk chunk;
+        // Changed whenever a block in the chunk changes
+        private long version;
+
+        private BlockVersion(LevelChunk chunk, long version) {
+            this.chunk = chunk;
+            this.version = version;
+        }
+    }
+
+    private static final class PlayerState {
+
+        // The eye position at the last time all blocks around the player were traced
+        private double x = Double.NaN;
+        private double y = Double.NaN;
+        private double z = Double.NaN;
+        // The stamps of the candidates of each chunk at the last trace
+        private final Long2LongMap tracedStamps = new Long2LongOpenHashMap();
+        // The positions of the blocks revealed in each chunk
+        private final Long2ObjectMap<LongSet> revealed = new Long2ObjectOpenHashMap<>();
+
+        private PlayerState() {
+            tracedStamps.defaultReturnValue(-1);
+        }
+    }
+
+    private static final class Worker {
+
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("Paper Anti-Xray Ray Tracer")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(new net.minecraft.DefaultUncaughtExceptionHandlerWithName(LOGGER))
+                .build()
+        );
+    }
+}
@@ -1,12 +1,18 @@
 package io.papermc.paper.command;
 
 import io.papermc.paper.FeatureHooks;
+import io.papermc.paper.command.subcommands.ChunkPacketsCommand;
 import io.papermc.paper.command.subcommands.DumpItemCommand;
 import io.papermc.paper.command.subcommands.DumpListenersCommand;
 import io.papermc.paper.command.subcommands.DumpPluginsCommand;
 import io.papermc.paper.command.subcommands.EntityCommand;
+import io.papermc.paper.command.subcommands.EventsCommand;
+import io.papermc.paper.command.subcommands.FlushesCommand;
 import io.papermc.paper.command.subcommands.HeapDumpCommand;
 import io.papermc.paper.command.subcommands.MobcapsCommand;
+import io.papermc.paper.command.subcommands.PacketLimiterCommand;
+import io.papermc.paper.command.subcommands.PlayerInfoCommand;
+import io.papermc.paper.command.subcommands.RegionIOCommand;
 import io.papermc.paper.command.subcommands.ReloadCommand;
 import io.papermc.paper.command.subcommands.SyncLoadInfoCommand;
 import io.papermc.paper.command.subcommands.VersionCommand;
@@ -51,6 +57,12 @@ public final class PaperCommand extends Command {
         commands.put(Set.of("dumpitem"), new DumpItemCommand());
         commands.put(Set.of("mobcaps", "playermobcaps"), new MobcapsCommand());
         commands.put(Set.of("dumplisteners"), new DumpListenersCommand());
+        commands.put(Set.of("regionio"), new RegionIOCommand());
+        commands.put(Set.of("events"), new EventsCommand());
+        commands.put(Set.of("chunkpackets"), new ChunkPacketsCommand());
+        commands.put(Set.of("flushes"), new FlushesCommand());
+        commands.put(Set.of("playerinfo"), new PlayerInfoCommand());
+        commands.put(Set.of("packetlimiter"), new PacketLimiterCommand());
         FeatureHooks.registerPaperCommands(commands);
 
         return commands.entrySet().stream()
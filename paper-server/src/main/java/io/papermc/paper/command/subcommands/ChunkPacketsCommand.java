@@ -0,0 +1,29 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.network.ChunkPacketCache;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static io.papermc.paper.command.subcommands.RegionIOCommand.formatBytes;
+import static io.papermc.paper.command.subcommands.RegionIOCommand.line;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class ChunkPacketsCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        sender.sendMessage(text("Chunk packet cache", YELLOW));
+
+        final long hits = ChunkPacketCache.hits();
+        final long requests = hits + ChunkPacketCache.misses() + ChunkPacketCache.invalidations();
+        sender.sendMessage(line("Hits", hits + (requests == 0L ? "" : String.format(" (%.1f%%)", 100.0 * hits / requests))));
+        sender.sendMessage(line("Misses", String.valueOf(ChunkPacketCache.misses())));
+        sender.sendMessage(line("Invalidations", String.valueOf(ChunkPacketCache.invalidations())));
+        sender.sendMessage(line("Evictions", String.valueOf(ChunkPacketCache.evictions())));
+        sender.sendMessage(line("Cached packets", ChunkPacketCache.cachedPackets() + " (" + formatBytes(ChunkPacketCache.cachedBytes()) + ")"));
+        return true;
+    }
+}
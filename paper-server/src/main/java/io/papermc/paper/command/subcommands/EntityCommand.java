@@ -4,6 +4,7 @@ import com.google.common.collect.Maps;
 import io.papermc.paper.FeatureHooks;
 import io.papermc.paper.command.CommandUtil;
 import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.entity.ai.PathCache;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -39,6 +40,10 @@ import static net.kyori.adventure.text.format.NamedTextColor.RED;
 public final class EntityCommand implements PaperSubcommand {
     @Override
     public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length >= 1 && args[0].toLowerCase(Locale.ROOT).equals("pathfinding")) {
+            this.pathfindingStats(sender, args);
+            return true;
+        }
         this.listEntities(sender, args);
         return true;
     }
@@ -46,8 +51,11 @@ public final class EntityCommand implements PaperSubcommand {
     @Override
     public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
         if (args.length == 1) {
-            return CommandUtil.getListMatchingLast(sender, args, "help", "list");
+            return CommandUtil.getListMatchingLast(sender, args, "help", "list", "pathfinding");
         } else if (args.length == 2) {
+            if (args[0].toLowerCase(Locale.ROOT).equals("pathfinding")) {
+                return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
+            }
             return CommandUtil.getListMatchingLast(sender, args, BuiltInRegistries.ENTITY_TYPE.keySet());
         }
         return Collections.emptyList();
@@ -59,7 +67,7 @@ public final class EntityCommand implements PaperSubcommand {
     private void listEntities(final CommandSender sender, final String[] args) {
         // help
         if (args.length < 1 || !args[0].toLowerCase(Locale.ROOT).equals("list")) {
-            sender.sendMessage(text("Use /paper entity [list] help for more information on a specific command", RED));
+            sender.sendMessage(text("Use /paper entity [list|pathfinding] help for more information on a specific command", RED));
             return;
         }
 
@@ -155,4 +163,35 @@ public final class EntityCommand implements PaperSubcommand {
             }
         }
     }
+
+    private void pathfindingStats(final CommandSender sender, final String[] args) {
+        final String worldName;
+        if (args.length > 1) {
+            if (args[1].toLowerCase(Locale.ROOT).equals("help")) {
+                sender.sendMessage(text("Use /paper entity pathfinding [worldName] to get path cache and async pathfinding statistics of a world.", RED));
+                return;
+            }
+            worldName = args[1];
+        } else if (sender instanceof Player player) {
+            worldName = player.getWorld().getName();
+        } else {
+            sender.sendMessage(text("Please specify the name of a world", RED));
+            sender.sendMessage(text("Usage: /paper entity pathfinding [worldName]", RED));
+            return;
+        }
+        final @Nullable World bukkitWorld = Bukkit.getWorld(worldName);
+        if (bukkitWorld == null) {
+            sender.sendMessage(text("Could not load world for " + worldName + ". Please select a valid world.", RED));
+            sender.sendMessage(text("Usage: /paper entity pathfinding [worldName]", RED));
+            return;
+        }
+        final ServerLevel world = ((CraftWorld) bukkitWorld).getHandle();
+        final PathCache pathCache = world.pathCache;
+        final long lookups = pathCache.getHits() + pathCache.getMisses();
+        final long hitRate = lookups == 0 ? 0 : pathCache.getHits() * 100 / lookups;
+        sender.sendMessage("Path cache" + (world.paperConfig().entities.behavior.pathCache.enabled ? "" : " (disabled)") + ": " + pathCache.size() + " paths, "
+            + pathCache.getHits() + " hits, " + pathCache.getMisses() + " misses (" + hitRate + "% hit rate), "
+            + pathCache.getInvalidated() + " invalidated by block changes");
+        sender.sendMessage("Async pathfinding: " + world.aiPlanner.getPathsFound() + " paths found, " + world.aiPlanner.getPathsDiscarded() + " discarded");
+    }
 }
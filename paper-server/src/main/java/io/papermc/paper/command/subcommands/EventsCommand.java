@@ -0,0 +1,219 @@
+package io.papermc.paper.command.subcommands;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.Strictness;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonWriter;
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.plugin.manager.EventListenerProfiler;
+import io.papermc.paper.plugin.manager.PaperPluginManagerImpl;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.minecraft.server.MinecraftServer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.DARK_AQUA;
+import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.WHITE;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class EventsCommand implements PaperSubcommand {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss");
+    private static final int TOP = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        final EventListenerProfiler profiler = PaperPluginManagerImpl.getInstance().getEventListenerProfiler();
+        final String action = args.length == 0 ? "plugins" : args[0].toLowerCase(Locale.ROOT);
+        switch (action) {
+            case "plugins" -> this.showPlugins(sender, profiler);
+            case "listeners" -> this.showListeners(sender, profiler, args.length > 1 ? args[1] : null);
+            case "reset" -> {
+                profiler.reset();
+                sender.sendMessage(text("Event listener statistics have been reset", GREEN));
+            }
+            case "dump" -> this.dump(sender, profiler);
+            default -> sender.sendMessage(text("Usage: /paper events [plugins|listeners [plugin]|reset|dump]", RED));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "plugins", "listeners", "reset", "dump");
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("listeners")) {
+            final List<String> plugins = new ArrayList<>();
+            for (final Plugin plugin : PaperPluginManagerImpl.getInstance().getPlugins()) {
+                plugins.add(plugin.getName());
+            }
+            return CommandUtil.getListMatchingLast(sender, args, plugins);
+        }
+        return List.of();
+    }
+
+    private static double seconds(final EventListenerProfiler profiler) {
+        return Math.max(1.0E-9, (System.nanoTime() - profiler.since()) / 1.0E9);
+    }
+
+    private static String cost(final long nanos, final long bytes, final double seconds, final boolean allocations) {
+        final String time = String.format("%.2f ms/s", nanos / 1.0E6 / seconds);
+        return allocations ? time + ", " + RegionIOCommand.formatBytes((long) (bytes / seconds)) + "/s" : time;
+    }
+
+    private void showPlugins(final CommandSender sender, final EventListenerProfiler profiler) {
+        final double seconds = seconds(profiler);
+        final List<PluginTotals> plugins = new ArrayList<>(this.pluginTotals(profiler.snapshot()).values());
+        plugins.sort(Comparator.comparingLong(PluginTotals::nanos).reversed());
+
+        sender.sendMessage(text(String.format("Event listener cost by plugin, last %.0f seconds", seconds), YELLOW));
+        if (plugins.isEmpty()) {
+            sender.sendMessage(text(" No listeners have been called", GRAY));
+        }
+        for (final PluginTotals totals : plugins.subList(0, Math.min(TOP, plugins.size()))) {
+            sender.sendMessage(RegionIOCommand.line(totals.name, totals.calls + " calls, "
+                + cost(totals.nanos, totals.bytes, seconds, profiler.measuresAllocations())));
+        }
+    }
+
+    private void showListeners(final CommandSender sender, final EventListenerProfiler profiler, final @Nullable String plugin) {
+        final double seconds = seconds(profiler);
+        final List<EventListenerProfiler.ListenerStats> listeners = new ArrayList<>();
+        for (final EventListenerProfiler.ListenerStats stats : profiler.snapshot()) {
+            if (plugin == null || stats.pluginName().equalsIgnoreCase(plugin)) {
+                listeners.add(stats);
+            }
+        }
+        listeners.sort(Comparator.comparingLong(EventListenerProfiler.ListenerStats::estimatedNanos).reversed());
+
+        sender.sendMessage(text(String.format("Most expensive event listeners%s, last %.0f seconds", plugin == null ? "" : " of " + plugin, seconds), YELLOW));
+        if (listeners.isEmpty()) {
+            sender.sendMessage(text(" No listeners have been called", GRAY));
+        }
+        for (final EventListenerProfiler.ListenerStats stats : listeners.subList(0, Math.min(TOP, listeners.size()))) {
+            sender.sendMessage(text().append(
+                text(" " + stats.pluginName() + " ", DARK_AQUA),
+                text(stats.eventName() + " (" + stats.priority() + ") ", WHITE),
+                text(stats.listenerName(), GRAY)
+            ));
+            sender.sendMessage(RegionIOCommand.line(" Cost", stats.calls() + " calls, "
+                + cost(stats.estimatedNanos(), stats.estimatedBytes(), seconds, profiler.measuresAllocations())
+                + String.format(", %.2f ms max", stats.maxNanos() / 1.0E6)));
+        }
+    }
+
+    private Map<String, PluginTotals> pluginTotals(final List<EventListenerProfiler.ListenerStats> listeners) {
+        final Map<String, PluginTotals> plugins = new LinkedHashMap<>();
+        for (final EventListenerProfiler.ListenerStats stats : listeners) {
+            final PluginTotals totals = plugins.computeIfAbsent(stats.pluginName(), PluginTotals::new);
+            totals.calls += stats.calls();
+            totals.nanos += stats.estimatedNanos();
+            totals.bytes += stats.estimatedBytes();
+        }
+        return plugins;
+    }
+
+    private void dump(final CommandSender sender, final EventListenerProfiler profiler) {
+        final Path parent = Path.of("debug");
+        final Path path = parent.resolve("event-profile-" + FORMATTER.format(LocalDateTime.now()) + ".json");
+        try {
+            Files.createDirectories(parent);
+            Files.createFile(path);
+
+            final StringWriter stringWriter = new StringWriter();
+            final JsonWriter jsonWriter = new JsonWriter(stringWriter);
+            jsonWriter.setIndent(" ");
+            jsonWriter.setStrictness(Strictness.STRICT);
+            Streams.write(this.writeProfile(profiler), jsonWriter);
+
+            try (final PrintStream out = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8)) {
+                out.print(stringWriter);
+            }
+            sender.sendMessage(
+                text("Successfully written event listener statistics into", GREEN)
+                    .appendSpace()
+                    .append(
+                        text(path.toString(), WHITE)
+                            .hoverEvent(text("Click to copy the full path of the file", WHITE))
+                            .clickEvent(ClickEvent.copyToClipboard(path.toAbsolutePath().toString()))
+                    )
+            );
+        } catch (final IOException | RuntimeException e) {
+            sender.sendMessage(text("Failed to write event listener statistics! See the console for more info.", RED));
+            MinecraftServer.LOGGER.warn("Error occurred while dumping event listener statistics", e);
+        }
+    }
+
+    private JsonObject writeProfile(final EventListenerProfiler profiler) {
+        final List<EventListenerProfiler.ListenerStats> listeners = profiler.snapshot();
+        final JsonObject root = new JsonObject();
+        root.addProperty("duration-nanos", System.nanoTime() - profiler.since());
+        root.addProperty("measures-allocations", profiler.measuresAllocations());
+
+        final JsonObject plugins = new JsonObject();
+        for (final PluginTotals totals : this.pluginTotals(listeners).values()) {
+            final JsonObject plugin = new JsonObject();
+            plugin.addProperty("calls", totals.calls);
+            plugin.addProperty("estimated-nanos", totals.nanos);
+            plugin.addProperty("estimated-bytes", totals.bytes);
+            plugins.add(totals.name, plugin);
+        }
+        root.add("plugins", plugins);
+
+        final JsonArray array = new JsonArray();
+        for (final EventListenerProfiler.ListenerStats stats : listeners) {
+            final JsonObject listener = new JsonObject();
+            listener.addProperty("plugin", stats.pluginName());
+            listener.addProperty("event", stats.eventName());
+            listener.addProperty("listener", stats.listenerName());
+            listener.addProperty("priority", stats.priority().name());
+            listener.addProperty("calls", stats.calls());
+            listener.addProperty("sampled-calls", stats.sampledCalls());
+            listener.addProperty("estimated-nanos", stats.estimatedNanos());
+            listener.addProperty("estimated-bytes", stats.estimatedBytes());
+            listener.addProperty("max-sampled-nanos", stats.maxNanos());
+            array.add(listener);
+        }
+        root.add("listeners", array);
+        return root;
+    }
+
+    private static final class PluginTotals {
+        private final String name;
+        private long calls;
+        private long nanos;
+        private long bytes;
+
+        private PluginTotals(final String name) {
+            this.name = name;
+        }
+
+        long nanos() {
+            return this.nanos;
+        }
+    }
+}
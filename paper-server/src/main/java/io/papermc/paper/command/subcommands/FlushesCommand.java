@@ -0,0 +1,44 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.network.ConnectionFlushes;
+import java.util.Comparator;
+import java.util.List;
+import net.minecraft.network.Connection;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static io.papermc.paper.command.subcommands.RegionIOCommand.line;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.DARK_AQUA;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class FlushesCommand implements PaperSubcommand {
+    private static final int MAX_PLAYERS = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        sender.sendMessage(text("Network flushes", YELLOW));
+        sender.sendMessage(line("Flush once per tick", ConnectionFlushes.enabled() ? "enabled" : "disabled"));
+        sender.sendMessage(line("End of tick flushes", String.valueOf(ConnectionFlushes.tickFlushes())));
+        sender.sendMessage(line("Water mark flushes", String.valueOf(ConnectionFlushes.watermarkFlushes())));
+        sender.sendMessage(line("Deferred flushes", String.valueOf(ConnectionFlushes.deferredFlushes())));
+
+        final List<ServerPlayer> players = MinecraftServer.getServer().getPlayerList().getPlayers().stream()
+            .sorted(Comparator.comparingLong((ServerPlayer player) -> player.connection.connection.flushes.get()).reversed())
+            .limit(MAX_PLAYERS)
+            .toList();
+        if (!players.isEmpty()) {
+            sender.sendMessage(text("Players", DARK_AQUA));
+            for (final ServerPlayer player : players) {
+                final Connection connection = player.connection.connection;
+                sender.sendMessage(line(player.getScoreboardName(), connection.flushes.get() + " flushes, " + connection.deferredFlushes.get() + " deferred"));
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.network.PacketRateLimiter;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static io.papermc.paper.command.subcommands.RegionIOCommand.line;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class PacketLimiterCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        final List<Map.Entry<String, PacketRateLimiter.Violations>> violations = PacketRateLimiter.violations();
+        sender.sendMessage(text("Packet limiter violations", YELLOW));
+        if (violations.isEmpty()) {
+            sender.sendMessage(line("Limits", "none violated yet"));
+            return true;
+        }
+        for (final Map.Entry<String, PacketRateLimiter.Violations> entry : violations) {
+            sender.sendMessage(line(entry.getKey(), entry.getValue().dropped() + " dropped, " + entry.getValue().kicked() + " kicked"));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.network.PlayerInfoUpdates;
+import net.minecraft.server.MinecraftServer;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static io.papermc.paper.command.subcommands.RegionIOCommand.line;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class PlayerInfoCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        final PlayerInfoUpdates updates = MinecraftServer.getServer().getPlayerList().playerInfoUpdates;
+        sender.sendMessage(text("Player info updates", YELLOW));
+        sender.sendMessage(line("Aggregation", PlayerInfoUpdates.enabled() ? "enabled" : "disabled"));
+        sender.sendMessage(line("Packets without aggregation", String.valueOf(updates.updates())));
+        sender.sendMessage(line("Packets sent", String.valueOf(updates.packets())));
+        if (updates.packets() > 0L) {
+            sender.sendMessage(line("Aggregation ratio", String.format("%.2f", (double) updates.updates() / updates.packets())));
+        }
+        sender.sendMessage(line("Unchanged updates left out", String.valueOf(updates.unchanged())));
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.world.storage.RegionFileMetrics;
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.DARK_AQUA;
+import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class RegionIOCommand implements PaperSubcommand {
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        sender.sendMessage(text("Region file I/O", YELLOW));
+
+        sender.sendMessage(text("Reads", DARK_AQUA));
+        sender.sendMessage(line("Mapped bytes", formatBytes(RegionFileMetrics.mappedBytes())));
+        sender.sendMessage(line("Mapped reads", RegionFileMetrics.mappedReads() + " (" + formatBytes(RegionFileMetrics.mappedReadBytes()) + ")"));
+        sender.sendMessage(line("Heap reads", RegionFileMetrics.heapReads() + " (" + formatBytes(RegionFileMetrics.heapReadBytes()) + ")"));
+        final long @Nullable [] pageFaults = RegionFileMetrics.processPageFaults();
+        if (pageFaults != null) {
+            sender.sendMessage(line("Process page faults", pageFaults[0] + " minor, " + pageFaults[1] + " major"));
+        }
+
+        sender.sendMessage(text("Writes", DARK_AQUA));
+        final long batches = RegionFileMetrics.writeBatches();
+        final long batchedWrites = RegionFileMetrics.batchedWrites();
+        sender.sendMessage(line("Write batches", batches + (batches == 0L ? "" : String.format(" (%.1f writes per batch)", (double) batchedWrites / batches))));
+        sender.sendMessage(line("Coalesced chunks", RegionFileMetrics.coalescedWrites() + " (" + formatBytes(RegionFileMetrics.coalescedWriteBytes()) + ")"));
+        if (batches != 0L) {
+            sender.sendMessage(line("Batch latency", String.format("%.2f ms avg, %.2f ms max",
+                RegionFileMetrics.writeBatchNanos() / 1.0E6 / batches, RegionFileMetrics.maxWriteBatchNanos() / 1.0E6)));
+        }
+        sender.sendMessage(line("Syncs", RegionFileMetrics.syncs() + " (" + RegionFileMetrics.delayedSyncs() + " delayed)"));
+        return true;
+    }
+
+    static Component line(final String name, final String value) {
+        return text().append(text(" " + name + ": ", GRAY), text(value)).build();
+    }
+
+    static String formatBytes(final long bytes) {
+        if (bytes < 1024L) {
+            return bytes + " B";
+        }
+        if (bytes < 1024L * 1024L) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
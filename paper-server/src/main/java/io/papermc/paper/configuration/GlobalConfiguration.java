@@ -73,6 +73,12 @@ public class GlobalConfiguration extends ConfigurationPart {
             "Set to 0 to let the server configure it automatically per player, or set it to -1 to disable the limit."
         )
         public int playerMaxConcurrentChunkGenerates = 0;
+
+        @Comment(
+            "The maximum amount of memory in megabytes used to cache chunk packets, so a chunk sent to several players " +
+            "is only serialised and encoded once until it changes. Disabled (0) by default."
+        )
+        public int chunkPacketCacheSize = 0;
     }
     static void set(final GlobalConfiguration instance) {
         GlobalConfiguration.instance = instance;
@@ -186,11 +192,21 @@ public class GlobalConfiguration extends ConfigurationPart {
         public CompressionFormat compressionFormat = CompressionFormat.ZLIB;
         @Comment("This setting controls if equipment should be updated when handling certain player actions.")
         public boolean updateEquipmentOnPlayerActions = true;
+        public Zstd zstd;
+
+        public class Zstd extends ConfigurationPart {
+            @Comment("The compression level used when the compression format is ZSTD. Higher levels produce smaller region files but take longer to save chunks.")
+            @Constraints.Min(1)
+            public int compressionLevel = io.papermc.paper.world.storage.ZstdRegionCompression.DEFAULT_LEVEL;
+            @Comment("If a trained dictionary (paper-zstd.dict) in a region folder should be used when compressing chunks written to that folder. Chunks compressed with a dictionary always need it to be read.")
+            public boolean useDictionary = true;
+        }
 
         public enum CompressionFormat {
             GZIP,
             ZLIB,
             LZ4,
+            ZSTD,
             NONE
         }
     }
@@ -225,6 +241,12 @@ public class GlobalConfiguration extends ConfigurationPart {
         public int ioThreads = -1;
         public int workerThreads = -1;
         public String genParallelism = "default";
+        @Comment("The maximum number of queued I/O tasks of a single region file that are run together. Chunk writes of those tasks are laid out in one contiguous sector run with a single header update. 1 disables write coalescing.")
+        @Constraints.Min(1)
+        public int regionWriteBatchSize = 1;
+        @Comment("With flush-regions-on-save enabled and write coalescing enabled, a region file is synced at most once within this many milliseconds. A batch of writes waits for the window to pass before it is synced and completed, so writes queued meanwhile are synced together by the next batch. 0 syncs after every batch of writes.")
+        @Constraints.Min(0)
+        public int regionSyncGroupWindow = 0;
 
         @PostProcess
         private void postProcess() {
@@ -343,16 +365,49 @@ public class GlobalConfiguration extends ConfigurationPart {
                 executor.setMaximumPoolSize(_chatExecutorMaxSize);
             }
         }
+        public Netty netty;
+        public class Netty extends ConfigurationPart {
+            @Comment("Uses the io_uring transport for the server listener when it is available, instead of epoll. Falls back to epoll if io_uring cannot be used. Only applies if use-native-transport is enabled in server.properties.")
+            public boolean useIoUring = false;
+            @Comment("Sends packets as soon as they are flushed instead of waiting to coalesce small writes (disables Nagle's algorithm).")
+            public boolean tcpNoDelay = true;
+            @Comment("Acknowledges received data immediately instead of delaying acknowledgements. Only supported by the epoll and io_uring transports.")
+            public boolean tcpQuickAck = false;
+            @Comment("The size of the socket send buffer in bytes, or default to let the operating system size it.")
+            public IntOr.Default sendBufferSize = IntOr.Default.USE_DEFAULT;
+            @Comment("The number of pending outbound bytes above which a connection stops being writable. Netty defaults to 65536.")
+            public IntOr.Default writeBufferHighWaterMark = IntOr.Default.USE_DEFAULT;
+            @Comment("The number of pending outbound bytes below which a connection becomes writable again. Netty defaults to 32768.")
+            public IntOr.Default writeBufferLowWaterMark = IntOr.Default.USE_DEFAULT;
+            @Comment("Flushes each connection once at the end of the tick instead of after writes made on the main thread, or earlier if its pending outbound bytes go above the high water mark. Reduces the number of syscalls, but delays packets sent on the main thread until the end of the tick.")
+            public boolean flushOncePerTick = false;
+            @Comment("Compresses packets of at least this many bytes, such as chunk and registry packets, on a pool of worker threads instead of the netty event loop of the connection. Set to disabled to compress all packets on the event loops.")
+            public IntOr.Disabled compressionOffloadSize = IntOr.Disabled.DISABLED;
+            @Comment("The number of worker threads compressing offloaded packets. Set to 0 to use a quarter of the available processors.")
+            public int compressionOffloadThreads = 0;
+            @Comment("The number of pending tasks of an event loop above which offloaded packets of its connections are compressed at a lower level, and four times which at the lowest level. Set to 0 to always use the configured compression level.")
+            public int compressionOffloadBusyDepth = 256;
+        }
+        @Comment("The number of worker threads running the parallel sensor planning and async pathfinding of all worlds. Set to 0 to use a quarter of the available processors, and at least 2. Set to 1 to run them on the main thread.")
+        public int aiPlannerThreads = 0;
         public int maxJoinsPerTick = 5;
         public boolean sendFullPosForItemEntities = false;
         public boolean loadPermissionsYmlBeforePlugins = true;
         @Constraints.Min(4)
         public int regionFileCacheSize = 256;
+        @Comment("Serves region file reads from read-only memory mappings of the files instead of a read syscall per chunk, at the cost of address space.")
+        public boolean mapRegionFileReads = false;
         @Comment("See https://luckformula.emc.gs")
         public boolean useAlternativeLuckFormula = false;
         public boolean useDimensionTypeForCustomSpawners = false;
         public boolean strictAdvancementDimensionCheck = false;
+        @Comment("Compiles the listeners of frequently called events into a generated class calling all of them directly, so the JIT can inline them into the event call. Disable to call each registered listener in turn.")
+        public boolean compileEventDispatch = false;
         public IntOr.Default compressionLevel = IntOr.Default.USE_DEFAULT;
+        @Comment("Encodes (and compresses) packets sent to many players at once only once per protocol, compression threshold and, for packets with translated text, locale, instead of once per player. Connections with plugin handlers after the packet encoder still encode these packets themselves.")
+        public boolean encodeBroadcastPacketsOnce = false;
+        @Comment("Sends the player info (tab list) updates of a tick, such as game mode, display name and latency changes, as one packet per player at the end of the tick, leaving out updates which do not change anything. Updates made by plugins are still sent right away.")
+        public boolean aggregatePlayerInfoUpdates = false;
         @Comment("Defines the leniency distance added on the server to the interaction range of a player when validating interact packets.")
         public DoubleOr.Default clientInteractionLeniencyDistance = DoubleOr.Default.USE_DEFAULT;
         @Comment("Defines how many orbs groups can exist in an area.")
@@ -375,6 +430,14 @@ public class GlobalConfiguration extends ConfigurationPart {
 
     public class Anticheat extends ConfigurationPart {
 
+        public AntiXray antiXray;
+
+        public class AntiXray extends ConfigurationPart {
+            @Comment("The number of threads obfuscating the chunk sections of a chunk packet in parallel, for worlds with anti-xray enabled. Set to 0 to use a quarter of the available processors, or to 1 to obfuscate each chunk packet on a single thread.")
+            @Constraints.Min(0)
+            public int sectionThreads = 1;
+        }
+
         public Obfuscation obfuscation;
 
         public class Obfuscation extends ConfigurationPart {
@@ -20,6 +20,7 @@ import io.papermc.paper.configuration.type.fallback.AutosavePeriod;
 import io.papermc.paper.configuration.type.number.BelowZeroToEmpty;
 import io.papermc.paper.configuration.type.number.DoubleOr;
 import io.papermc.paper.configuration.type.number.IntOr;
+import io.papermc.paper.entity.activation.ActivationType;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2LongMap;
@@ -27,6 +28,7 @@ import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
@@ -98,6 +100,8 @@ public class WorldConfiguration extends ConfigurationPart {
             public EngineMode engineMode = EngineMode.HIDE;
             public int maxBlockHeight = 64;
             public int updateRadius = 2;
+            @Comment("With engine-mode 4, the distance in blocks from a player's eyes within which hidden blocks are revealed once they are in line of sight. Exposed hidden blocks in a chunk section whose palette only holds hidden blocks can't be replaced and stay visible.")
+            public int rayTraceDistance = 48;
             public boolean lavaObscures = false;
             public boolean usePermission = false;
             public List<Block> hiddenBlocks = List.of(
@@ -159,6 +163,22 @@ public class WorldConfiguration extends ConfigurationPart {
             public boolean tick = true;
         }
 
+        public ActivationRange activationRange;
+
+        public class ActivationRange extends ConfigurationPart {
+            public boolean spatialGrid = false;
+            public TieredTickRates tieredTickRates;
+
+            public class TieredTickRates extends ConfigurationPart {
+                @Comment("Whether active mobs standing still run their full tick less often the further they are from the nearest player, and their inactive tick in between. Mobs which move, are in a fluid, are hurt, have a target, ride or are ridden always tick.")
+                public boolean enabled = false;
+                @Comment("The distances to the nearest player beyond each of which a mob ticks at half the rate, down to once every 8 ticks.")
+                public List<Integer> distances = List.of(16, 24, 32);
+                @Comment("The distances of activation types, such as monster or animal, which differ from the distances above.")
+                public Map<ActivationType, List<Integer>> typeDistances = new EnumMap<>(ActivationType.class);
+            }
+        }
+
         public Sniffer sniffer;
 
         public class Sniffer extends ConfigurationPart {
@@ -311,6 +331,20 @@ public class WorldConfiguration extends ConfigurationPart {
             public boolean nerfPigmenFromNetherPortals = false;
             @Comment("Prevents merging items that are not on the same y level, preventing potential visual artifacts.")
             public boolean onlyMergeItemsHorizontally = false;
+            @Comment("Looks up the entities seen by the nearest living entity sensor of all mobs on worker threads before entities are ticked. Mobs then see the positions entities had at the start of the tick.")
+            public boolean parallelSensorPlanning = false;
+            @Comment("Entity types whose paths towards a position or entity are found on worker threads at the start of the next tick, instead of while the entity is ticked. The entity keeps following its current path until the new one is found.")
+            public List<EntityType<?>> asyncPathfinding = List.of();
+            public PathCache pathCache;
+
+            public class PathCache extends ConfigurationPart {
+                @Comment("Reuses the paths found for mobs of the same type, size, pathfinding malus, step height and fall distance walking from the same block to the same targets, until a block changes in a chunk the path passes through. Paths which do not reach their target are not reused.")
+                public boolean enabled = false;
+                @Comment("The maximum number of paths cached per world. The least recently used paths are dropped first.")
+                public int maxSize = 1024;
+                @Comment("The number of ticks after which a cached path is searched for again.")
+                public int expireAfterTicks = 100;
+            }
             public PillagerPatrols pillagerPatrols;
 
             public class PillagerPatrols extends ConfigurationPart {
@@ -515,6 +549,8 @@ public class WorldConfiguration extends ConfigurationPart {
             map.put(EntityType.SMALL_FIREBALL, -1);
         });
         public boolean flushRegionsOnSave = false;
+        @Comment("Whether chunk saves and chunk snapshots taken by plugins share block and biome palettes with the chunk copy-on-write instead of copying every section on the main thread. A section is then only copied once it is modified again.")
+        public boolean copyOnWriteSaveSnapshots = false;
 
         @PostProcess
         private void postProcess() {
@@ -5,7 +5,7 @@ import org.spongepowered.configurate.serialize.ScalarSerializer;
 
 public enum EngineMode {
 
-    HIDE(1, "hide ores"), OBFUSCATE(2, "obfuscate"), OBFUSCATE_LAYER(3, "obfuscate layer");
+    HIDE(1, "hide ores"), OBFUSCATE(2, "obfuscate"), OBFUSCATE_LAYER(3, "obfuscate layer"), RAY_TRACE(4, "ray trace");
 
     public static final ScalarSerializer<EngineMode> SERIALIZER = new EngineModeSerializer();
 
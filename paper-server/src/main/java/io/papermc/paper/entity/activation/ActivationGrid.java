@@ -0,0 +1,269 @@
+package io.papermc.paper.entity.activation;
+
+import ca.spottedleaf.moonrise.common.list.ReferenceList;
+import ca.spottedleaf.moonrise.common.misc.SingleUserAreaMap;
+import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
+import it.unimi.dsi.fastutil.longs.Long2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import java.util.Iterator;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.AABB;
+
+/**
+ * Evaluates activation ranges on a grid of the chunks around players, as an alternative to scanning the entities
+ * around every player each tick. Enabled with {@code entities.activation-range.spatial-grid}.
+ * <p>
+ * Each player is added to the chunks its activation ranges can reach, and only moved between chunks when it crosses a
+ * chunk border. Whether a chunk lies entirely within, or entirely outside, the activation range of a type is determined
+ * once per tick on the first lookup in it, so most entities are activated by looking up their chunk. Only the entities
+ * in chunks at the edge of an activation range are checked against the nearby players, the same way as before.
+ */
+public final class ActivationGrid {
+
+    // how far the bounding box of an entity may reach out of its chunk for the entity to be looked up by chunk
+    private static final double MARGIN = 4.0;
+    private static final int TYPES = ActivationType.values().length;
+    private static final TrackedPlayer[] EMPTY_PLAYERS = new TrackedPlayer[0];
+
+    private final Reference2ReferenceOpenHashMap<Player, TrackedPlayer> players = new Reference2ReferenceOpenHashMap<>();
+    private final Long2ReferenceOpenHashMap<GridChunk> chunks = new Long2ReferenceOpenHashMap<>();
+    private final int[] ranges = new int[TYPES];
+    private int maxRange;
+    private double height;
+    private long tick;
+
+    /**
+     * Starts a tick. The players are updated next, and entities looked up after {@link #endTick()}.
+     *
+     * @param tick the current tick
+     * @param height the height activation ranges reach above and below players
+     */
+    public void beginTick(final long tick, final int height) {
+        this.tick = tick;
+        this.height = height;
+        this.maxRange = 0;
+    }
+
+    /**
+     * Sets the activation range of a type for this tick. Called before the players are updated.
+     */
+    public void setRange(final ActivationType type, final int range) {
+        this.ranges[type.ordinal()] = range;
+        this.maxRange = Math.max(this.maxRange, range);
+    }
+
+    /**
+     * Moves a player activating entities this tick to its current bounding box.
+     */
+    public void updatePlayer(final Player player, final AABB boundingBox) {
+        final int chunkX = Mth.floor((boundingBox.minX + boundingBox.maxX) * 0.5) >> 4;
+        final int chunkZ = Mth.floor((boundingBox.minZ + boundingBox.maxZ) * 0.5) >> 4;
+        final double halfWidth = Math.max(boundingBox.maxX - boundingBox.minX, boundingBox.maxZ - boundingBox.minZ) * 0.5;
+        // the chunks an entity in range may be in, measured from the chunk containing the player
+        final int radius = ((this.maxRange + Mth.ceil(halfWidth + MARGIN)) >> 4) + 1;
+
+        TrackedPlayer tracked = this.players.get(player);
+        if (tracked == null) {
+            tracked = new TrackedPlayer(player);
+            this.players.put(player, tracked);
+            tracked.setBoundingBox(boundingBox);
+            tracked.add(chunkX, chunkZ, radius);
+        } else {
+            tracked.setBoundingBox(boundingBox);
+            tracked.update(chunkX, chunkZ, radius);
+        }
+        tracked.tick = this.tick;
+    }
+
+    /**
+     * Removes the players which were not updated this tick.
+     */
+    public void endTick() {
+        for (final Iterator<TrackedPlayer> iterator = this.players.values().iterator(); iterator.hasNext();) {
+            final TrackedPlayer tracked = iterator.next();
+            if (tracked.tick != this.tick) {
+                tracked.remove();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all players.
+     */
+    public void clear() {
+        if (this.players.isEmpty()) {
+            return;
+        }
+        for (final TrackedPlayer tracked : this.players.values()) {
+            tracked.remove();
+        }
+        this.players.clear();
+    }
+
+    /**
+     * Checks whether an entity is within the activation range of its type of any player, which is the case if its
+     * bounding box intersects the bounding box of a player inflated by the activation range horizontally and by the
+     * height vertically.
+     */
+    public boolean isInRange(final ActivationType type, final AABB boundingBox) {
+        final int index = type.ordinal();
+        final int range = this.ranges[index];
+        if (boundingBox.maxX - boundingBox.minX > 2.0 * MARGIN || boundingBox.maxZ - boundingBox.minZ > 2.0 * MARGIN) {
+            for (final TrackedPlayer tracked : this.players.values()) {
+                if (tracked.intersects(range, this.height, boundingBox)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        final int chunkX = Mth.floor((boundingBox.minX + boundingBox.maxX) * 0.5) >> 4;
+        final int chunkZ = Mth.floor((boundingBox.minZ + boundingBox.maxZ) * 0.5) >> 4;
+        final GridChunk chunk = this.chunks.get(CoordinateUtils.getChunkKey(chunkX, chunkZ));
+        if (chunk == null) {
+            return false;
+        }
+        if (chunk.tick != this.tick) {
+            chunk.evaluate(chunkX, chunkZ);
+        }
+
+        final TrackedPlayer covering = chunk.covering[index];
+        if (covering != null && covering.intersectsVertically(this.height, boundingBox)) {
+            return true;
+        }
+        if (!chunk.nearby[index]) {
+            return false;
+        }
+        final TrackedPlayer[] players = chunk.players.getRawDataUnchecked();
+        for (int i = 0, len = chunk.players.size(); i < len; ++i) {
+            if (players[i].intersects(range, this.height, boundingBox)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the squared horizontal distance from a position to the nearest player whose activation ranges reach its
+     * chunk, or {@link Double#MAX_VALUE} if there is none. Only the players added to the chunk are looked at, which are
+     * all players within the largest activation range.
+     */
+    public double nearestPlayerDistanceSqr(final double x, final double z) {
+        final GridChunk chunk = this.chunks.get(CoordinateUtils.getChunkKey(Mth.floor(x) >> 4, Mth.floor(z) >> 4));
+        if (chunk == null) {
+            return Double.MAX_VALUE;
+        }
+        double nearest = Double.MAX_VALUE;
+        final TrackedPlayer[] players = chunk.players.getRawDataUnchecked();
+        for (int i = 0, len = chunk.players.size(); i < len; ++i) {
+            final double dx = (players[i].minX + players[i].maxX) * 0.5 - x;
+            final double dz = (players[i].minZ + players[i].maxZ) * 0.5 - z;
+            nearest = Math.min(nearest, dx * dx + dz * dz);
+        }
+        return nearest;
+    }
+
+    private final class GridChunk {
+
+        private final ReferenceList<TrackedPlayer> players = new ReferenceList<>(EMPTY_PLAYERS);
+        // a player whose activation range of a type contains the whole chunk horizontally
+        private final TrackedPlayer[] covering = new TrackedPlayer[TYPES];
+        // whether the activation range of a type of any player reaches the entities in the chunk
+        private final boolean[] nearby = new boolean[TYPES];
+        private long tick = Long.MIN_VALUE;
+
+        private void evaluate(final int chunkX, final int chunkZ) {
+            this.tick = ActivationGrid.this.tick;
+            final double minX = chunkX << 4;
+            final double minZ = chunkZ << 4;
+            final double maxX = minX + 16.0;
+            final double maxZ = minZ + 16.0;
+            final TrackedPlayer[] players = this.players.getRawDataUnchecked();
+            final int len = this.players.size();
+            for (int index = 0; index < TYPES; ++index) {
+                final int range = ActivationGrid.this.ranges[index];
+                TrackedPlayer covering = null;
+                boolean nearby = false;
+                for (int i = 0; i < len; ++i) {
+                    final TrackedPlayer tracked = players[i];
+                    final double rangeMinX = tracked.minX - range;
+                    final double rangeMaxX = tracked.maxX + range;
+                    final double rangeMinZ = tracked.minZ - range;
+                    final double rangeMaxZ = tracked.maxZ + range;
+                    if (rangeMinX < maxX + MARGIN && rangeMaxX > minX - MARGIN && rangeMinZ < maxZ + MARGIN && rangeMaxZ > minZ - MARGIN) {
+                        nearby = true;
+                        // every entity is positioned within the chunk, so its bounding box contains a point of it
+                        if (rangeMinX < minX && rangeMaxX > maxX && rangeMinZ < minZ && rangeMaxZ > maxZ) {
+                            covering = tracked;
+                            break;
+                        }
+                    }
+                }
+                this.covering[index] = covering;
+                this.nearby[index] = nearby;
+            }
+        }
+    }
+
+    private final class TrackedPlayer extends SingleUserAreaMap<Player> {
+
+        private double minX;
+        private double minY;
+        private double minZ;
+        private double maxX;
+        private double maxY;
+        private double maxZ;
+        private long tick;
+
+        private TrackedPlayer(final Player player) {
+            super(player);
+        }
+
+        private void setBoundingBox(final AABB boundingBox) {
+            this.minX = boundingBox.minX;
+            this.minY = boundingBox.minY;
+            this.minZ = boundingBox.minZ;
+            this.maxX = boundingBox.maxX;
+            this.maxY = boundingBox.maxY;
+            this.maxZ = boundingBox.maxZ;
+        }
+
+        private boolean intersectsVertically(final double height, final AABB boundingBox) {
+            return this.minY - height < boundingBox.maxY && this.maxY + height > boundingBox.minY;
+        }
+
+        private boolean intersects(final int range, final double height, final AABB boundingBox) {
+            return this.minX - range < boundingBox.maxX && this.maxX + range > boundingBox.minX
+                && this.minZ - range < boundingBox.maxZ && this.maxZ + range > boundingBox.minZ
+                && this.intersectsVertically(height, boundingBox);
+        }
+
+        @Override
+        protected void addCallback(final Player parameter, final int chunkX, final int chunkZ) {
+            final long chunkKey = CoordinateUtils.getChunkKey(chunkX, chunkZ);
+            GridChunk chunk = ActivationGrid.this.chunks.get(chunkKey);
+            if (chunk == null) {
+                chunk = new GridChunk();
+                ActivationGrid.this.chunks.put(chunkKey, chunk);
+            }
+            chunk.players.add(this);
+            chunk.tick = Long.MIN_VALUE;
+        }
+
+        @Override
+        protected void removeCallback(final Player parameter, final int chunkX, final int chunkZ) {
+            final long chunkKey = CoordinateUtils.getChunkKey(chunkX, chunkZ);
+            final GridChunk chunk = ActivationGrid.this.chunks.get(chunkKey);
+            if (chunk == null || !chunk.players.remove(this)) {
+                throw new IllegalStateException("Player " + this.getParameter() + " is not in chunk " + chunkX + ", " + chunkZ);
+            }
+            if (chunk.players.size() == 0) {
+                ActivationGrid.this.chunks.remove(chunkKey);
+            } else {
+                chunk.tick = Long.MIN_VALUE;
+            }
+        }
+    }
+}
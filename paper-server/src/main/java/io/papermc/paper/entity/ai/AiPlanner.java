@@ -0,0 +1,244 @@
+package io.papermc.paper.entity.ai;
+
+import ca.spottedleaf.moonrise.patches.chunk_system.level.entity.ChunkEntitySlices;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.entity.EntityLookup;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.AABB;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Plans the read only part of entity AI for a level before its entities are ticked.
+ * <p>
+ * Sensors due on the next tick request their lookups while being ticked. At the start of the following entity tick,
+ * all requested lookups are run against a snapshot of the entities in the chunks they cover, spread over worker
+ * threads, and the results are handed back to the sensors, which apply them on the main thread while the entities tick
+ * in their usual order. As the snapshot is taken before any entity moves, the results do not depend on the tick order
+ * or on how the lookups were spread over threads.
+ * <p>
+ * Path searches requested by navigations are run on the worker threads at the same point, and the paths are handed
+ * back to the navigations before any entity is ticked.
+ */
+@NullMarked
+public final class AiPlanner {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    // how far the bounding box of an entity may reach out of the chunk of its position, as far as the ender dragon's
+    private static final double MAX_HALF_WIDTH = 8.0;
+
+    private final List<LivingEntity> requested = new ArrayList<>();
+    private final Reference2ObjectOpenHashMap<LivingEntity, List<LivingEntity>> planned = new Reference2ObjectOpenHashMap<>();
+    private final List<PathRequest> pathRequests = new ArrayList<>();
+    private long pathsFound;
+    private long pathsDiscarded;
+
+    /**
+     * Requests the nearest living entity lookup of the entity to be planned at the start of the next entity tick.
+     */
+    public void requestNearestLivingEntities(final LivingEntity entity) {
+        this.requested.add(entity);
+    }
+
+    /**
+     * Requests a path search to be run at the start of the next entity tick.
+     */
+    public void requestPath(final PathRequest request) {
+        this.pathRequests.add(request);
+    }
+
+    /**
+     * Returns the number of requested paths that were searched for and handed back to their navigation.
+     */
+    public long getPathsFound() {
+        return this.pathsFound;
+    }
+
+    /**
+     * Returns the number of requested paths that were dropped, as the navigation requested another path or stopped, or
+     * the entity was removed before the path was handed back.
+     */
+    public long getPathsDiscarded() {
+        return this.pathsDiscarded;
+    }
+
+    /**
+     * Runs the lookups and path searches requested since the last call. Results that were not taken during the
+     * previous tick are dropped.
+     */
+    public void plan(final ServerLevel level) {
+        this.planNearestLivingEntities(level);
+        this.planPaths(level);
+    }
+
+    private void planNearestLivingEntities(final ServerLevel level) {
+        this.planned.clear();
+        if (this.requested.isEmpty()) {
+            return;
+        }
+
+        final List<EntitySnapshot.Query<LivingEntity>> queries = new ArrayList<>(this.requested.size());
+        for (final LivingEntity entity : this.requested) {
+            if (entity.isRemoved() || entity.level() != level || this.planned.containsKey(entity)) {
+                continue;
+            }
+            final double range = entity.getAttributeValue(Attributes.FOLLOW_RANGE);
+            final AABB box = entity.getBoundingBox().inflate(range, range, range);
+            queries.add(new EntitySnapshot.Query<>(entity, box, entity.getX(), entity.getY(), entity.getZ()));
+            // reserve the entry, so an entity requesting twice is only looked up once
+            this.planned.put(entity, List.of());
+        }
+        this.requested.clear();
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        // only the entities in the chunks the lookups cover, in the order of the chunks so results do not depend on
+        // the order the lookups were requested in
+        final LongOpenHashSet coveredChunks = new LongOpenHashSet();
+        for (final EntitySnapshot.Query<LivingEntity> query : queries) {
+            final AABB box = query.box();
+            final int minChunkX = Mth.floor(box.minX - MAX_HALF_WIDTH) >> 4;
+            final int maxChunkX = Mth.floor(box.maxX + MAX_HALF_WIDTH) >> 4;
+            final int minChunkZ = Mth.floor(box.minZ - MAX_HALF_WIDTH) >> 4;
+            final int maxChunkZ = Mth.floor(box.maxZ + MAX_HALF_WIDTH) >> 4;
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+                    coveredChunks.add(ChunkPos.asLong(chunkX, chunkZ));
+                }
+            }
+        }
+        final long[] chunks = coveredChunks.toLongArray();
+        Arrays.sort(chunks);
+
+        final EntityLookup entityLookup = level.moonrise$getEntityLookup();
+        final EntitySnapshot<LivingEntity> snapshot = new EntitySnapshot<>();
+        for (final long chunk : chunks) {
+            final @Nullable ChunkEntitySlices slices = entityLookup.getChunk(ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+            if (slices == null) {
+                continue;
+            }
+            for (final Entity entity : slices.getAllEntities()) {
+                if (entity instanceof final LivingEntity livingEntity && livingEntity.isAlive()) {
+                    snapshot.add(livingEntity, livingEntity.getBoundingBox(), livingEntity.getX(), livingEntity.getY(), livingEntity.getZ());
+                }
+            }
+        }
+
+        final List<LivingEntity>[] results = snapshot.nearest(queries, Workers.POOL);
+        for (int i = 0; i < results.length; ++i) {
+            this.planned.put(queries.get(i).self(), results[i]);
+        }
+    }
+
+    private void planPaths(final ServerLevel level) {
+        if (this.pathRequests.isEmpty()) {
+            return;
+        }
+
+        final List<PathRequest> requests = new ArrayList<>(this.pathRequests.size());
+        // a mob's pathfinding malus is changed during a search, so only its latest request runs
+        final Set<Mob> mobs = new ReferenceOpenHashSet<>();
+        for (int i = this.pathRequests.size() - 1; i >= 0; --i) {
+            final PathRequest request = this.pathRequests.get(i);
+            if (request.isCancelled() || request.mob().isRemoved() || request.mob().level() != level
+                || request.mob().getNavigation() != request.navigation() || !mobs.add(request.mob())) {
+                request.cancel();
+                ++this.pathsDiscarded;
+                continue;
+            }
+            requests.add(request);
+        }
+        this.pathRequests.clear();
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        final @Nullable ForkJoinPool pool = Workers.POOL;
+        if (pool == null || requests.size() < 2) {
+            for (final PathRequest request : requests) {
+                request.find();
+            }
+        } else {
+            pool.submit(() -> requests.parallelStream().forEach(PathRequest::find)).join();
+        }
+
+        // hand the paths back in the order they were requested in
+        for (int i = requests.size() - 1; i >= 0; --i) {
+            final PathRequest request = requests.get(i);
+            if (request.failure() != null) {
+                LOGGER.error("Failed to find path for {}", request.mob(), request.failure());
+            }
+            request.navigation().deliverPath(request);
+            ++this.pathsFound;
+        }
+    }
+
+    /**
+     * Returns whether the current thread is one of the planner's worker threads, which must not touch state shared
+     * between the entities of a level.
+     */
+    public static boolean isWorkerThread() {
+        return Workers.POOL != null && Thread.currentThread() instanceof final ForkJoinWorkerThread thread && thread.getPool() == Workers.POOL;
+    }
+
+    /**
+     * Takes the planned nearest living entities of the entity, sorted by distance, leaving out entities that were
+     * removed or died since the lookup.
+     *
+     * @return the entities, or {@code null} if no lookup was planned for the entity this tick
+     */
+    public @Nullable List<LivingEntity> takeNearestLivingEntities(final LivingEntity entity) {
+        final @Nullable List<LivingEntity> planned = this.planned.remove(entity);
+        if (planned == null) {
+            return null;
+        }
+        final List<LivingEntity> nearest = new ArrayList<>(planned.size());
+        for (final LivingEntity livingEntity : planned) {
+            if (!livingEntity.isRemoved() && livingEntity.isAlive()) {
+                nearest.add(livingEntity);
+            }
+        }
+        return nearest;
+    }
+
+    private static final class Workers {
+
+        private static final @Nullable ForkJoinPool POOL = createPool();
+
+        private static @Nullable ForkJoinPool createPool() {
+            final int configured = GlobalConfiguration.get().misc.aiPlannerThreads;
+            final int threads = configured > 0 ? configured : Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+            if (threads <= 1) {
+                LOGGER.info("Planning entity AI on the main thread");
+                return null;
+            }
+            LOGGER.info("Planning entity AI on {} worker thread(s)", threads);
+
+            final AtomicInteger threadId = new AtomicInteger();
+            return new ForkJoinPool(threads, pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Paper AI Planner Worker #" + threadId.getAndIncrement());
+                return thread;
+            }, new net.minecraft.DefaultUncaughtExceptionHandlerWithName(LOGGER), false);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.papermc.paper.entity.ai;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import net.minecraft.util.Mth;
+import net.minecraft.world.phys.AABB;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The bounding boxes and positions of entities frozen at one point of a tick, which can be searched from any number of
+ * threads once built.
+ * <p>
+ * Lookups only depend on the snapshot and the query: entities at the same distance are ordered by the order they were
+ * added in, so results are the same no matter how lookups are spread over threads.
+ *
+ * @param <T> the type of the entities
+ */
+@NullMarked
+public final class EntitySnapshot<T> {
+
+    private final List<T> entities = new ArrayList<>();
+    // minX, minY, minZ, maxX, maxY, maxZ of each entity
+    private double[] boxes = new double[6 * 64];
+    // x, y, z of each entity
+    private double[] positions = new double[3 * 64];
+    // the entities by the chunk column of their position
+    private final Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+    private double maxHalfWidth;
+
+    /**
+     * Adds an entity. Must not be called once lookups started.
+     */
+    public void add(final T entity, final AABB boundingBox, final double x, final double y, final double z) {
+        final int index = this.entities.size();
+        if (3 * index == this.positions.length) {
+            this.boxes = Arrays.copyOf(this.boxes, this.boxes.length * 2);
+            this.positions = Arrays.copyOf(this.positions, this.positions.length * 2);
+        }
+        this.entities.add(entity);
+        final int box = 6 * index;
+        this.boxes[box] = boundingBox.minX;
+        this.boxes[box + 1] = boundingBox.minY;
+        this.boxes[box + 2] = boundingBox.minZ;
+        this.boxes[box + 3] = boundingBox.maxX;
+        this.boxes[box + 4] = boundingBox.maxY;
+        this.boxes[box + 5] = boundingBox.maxZ;
+        final int position = 3 * index;
+        this.positions[position] = x;
+        this.positions[position + 1] = y;
+        this.positions[position + 2] = z;
+
+        this.maxHalfWidth = Math.max(this.maxHalfWidth, Math.max(Math.max(x - boundingBox.minX, boundingBox.maxX - x), Math.max(z - boundingBox.minZ, boundingBox.maxZ - z)));
+        this.cells.computeIfAbsent(cellKey(Mth.floor(x) >> 4, Mth.floor(z) >> 4), key -> new IntArrayList()).add(index);
+    }
+
+    public int size() {
+        return this.entities.size();
+    }
+
+    private static long cellKey(final int cellX, final int cellZ) {
+        return ((long) cellZ << 32) | (cellX & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the entities whose bounding box intersects the query box, other than the querying entity itself, sorted by
+     * their distance to the query position.
+     */
+    public List<T> nearest(final Query<T> query) {
+        final AABB box = query.box();
+        final IntArrayList found = new IntArrayList();
+        final int minCellX = Mth.floor(box.minX - this.maxHalfWidth) >> 4;
+        final int maxCellX = Mth.floor(box.maxX + this.maxHalfWidth) >> 4;
+        final int minCellZ = Mth.floor(box.minZ - this.maxHalfWidth) >> 4;
+        final int maxCellZ = Mth.floor(box.maxZ + this.maxHalfWidth) >> 4;
+        for (int cellX = minCellX; cellX <= maxCellX; ++cellX) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; ++cellZ) {
+                final @Nullable IntArrayList cell = this.cells.get(cellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0, len = cell.size(); i < len; ++i) {
+                    final int index = cell.getInt(i);
+                    final int b = 6 * index;
+                    if (this.boxes[b] < box.maxX && this.boxes[b + 3] > box.minX
+                        && this.boxes[b + 1] < box.maxY && this.boxes[b + 4] > box.minY
+                        && this.boxes[b + 2] < box.maxZ && this.boxes[b + 5] > box.minZ
+                        && this.entities.get(index) != query.self()) {
+                        found.add(index);
+                    }
+                }
+            }
+        }
+
+        final int[] indices = found.toIntArray();
+        final double[] distances = new double[indices.length];
+        final Integer[] order = new Integer[indices.length];
+        for (int i = 0; i < indices.length; ++i) {
+            final int p = 3 * indices[i];
+            final double dx = this.positions[p] - query.x();
+            final double dy = this.positions[p + 1] - query.y();
+            final double dz = this.positions[p + 2] - query.z();
+            distances[i] = dx * dx + dy * dy + dz * dz;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int compare = Double.compare(distances[a], distances[b]);
+            return compare != 0 ? compare : Integer.compare(indices[a], indices[b]);
+        });
+
+        final List<T> nearest = new ArrayList<>(indices.length);
+        for (final Integer i : order) {
+            nearest.add(this.entities.get(indices[i]));
+        }
+        return nearest;
+    }
+
+    /**
+     * Runs the lookups of all queries, spread over the pool if one is given.
+     *
+     * @return the results, in the order of the queries
+     */
+    @SuppressWarnings("unchecked")
+    public List<T>[] nearest(final List<Query<T>> queries, final @Nullable ForkJoinPool pool) {
+        final List<T>[] results = new List[queries.size()];
+        if (pool == null || queries.size() < 2) {
+            for (int i = 0; i < results.length; ++i) {
+                results[i] = this.nearest(queries.get(i));
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(i -> results[i] = this.nearest(queries.get(i)))).join();
+        }
+        return results;
+    }
+
+    /**
+     * A lookup of the entities intersecting a box.
+     *
+     * @param self the querying entity, which is never part of the result
+     * @param box the box the entities intersect
+     * @param x the x coordinate distances are measured from
+     * @param y the y coordinate distances are measured from
+     * @param z the z coordinate distances are measured from
+     * @param <T> the type of the entities
+     */
+    public record Query<T>(T self, AABB box, double x, double y, double z) {
+    }
+}
@@ -0,0 +1,258 @@
+package io.papermc.paper.entity.ai;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.NodeEvaluator;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.level.pathfinder.PathType;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Caches the paths found by navigations of a level, so mobs which search for paths the same way walking from the same
+ * block to the same targets reuse a path instead of searching for it again.
+ * <p>
+ * A cached path is dropped once a block changes in one of the chunks it passes through, after it expired, or once the
+ * cache is full and it is the least recently used path. Paths which do not reach their target depend on every block
+ * the search looked at, not only on those they pass through, so they are not cached. Navigations change the paths they
+ * follow, so paths are copied when they are put into and taken out of the cache.
+ */
+@NullMarked
+public final class PathCache {
+
+    private final Object2ObjectLinkedOpenHashMap<Key, Entry> entries = new Object2ObjectLinkedOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<ReferenceOpenHashSet<Entry>> entriesByChunk = new Long2ObjectOpenHashMap<>();
+    private long hits;
+    private long misses;
+    private long invalidated;
+
+    /**
+     * Returns a copy of the path cached for the key, or {@code null} if there is none or it expired.
+     *
+     * @param tick the current tick
+     * @param expireAfter the number of ticks a path stays cached
+     */
+    public @Nullable Path get(final Key key, final int tick, final int expireAfter) {
+        final @Nullable Entry entry = this.entries.getAndMoveToLast(key);
+        if (entry == null) {
+            ++this.misses;
+            return null;
+        }
+        if (tick - entry.tick >= expireAfter) {
+            this.remove(entry);
+            ++this.misses;
+            return null;
+        }
+        ++this.hits;
+        return copy(entry.path);
+    }
+
+    /**
+     * Caches a copy of the path for the key if it reaches its target, dropping the least recently used paths while more
+     * than the given number of paths are cached.
+     *
+     * @param tick the current tick
+     */
+    public void put(final Key key, final Path path, final int tick, final int maxSize) {
+        final @Nullable Entry previous = this.entries.get(key);
+        if (previous != null) {
+            this.remove(previous);
+        }
+        if (maxSize <= 0 || path.getNodeCount() == 0 || !path.canReach()) {
+            return;
+        }
+
+        final Entry entry = new Entry(key, copy(path), tick, coveredChunks(path));
+        this.entries.putAndMoveToLast(key, entry);
+        for (final long chunk : entry.chunks) {
+            this.entriesByChunk.computeIfAbsent(chunk, k -> new ReferenceOpenHashSet<>()).add(entry);
+        }
+        while (this.entries.size() > maxSize) {
+            this.remove(this.entries.get(this.entries.firstKey()));
+        }
+    }
+
+    /**
+     * Drops the paths passing through the chunk of a changed block.
+     */
+    public void invalidate(final BlockPos pos) {
+        if (this.entriesByChunk.isEmpty()) {
+            return;
+        }
+        final @Nullable ReferenceOpenHashSet<Entry> entries = this.entriesByChunk.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (entries == null) {
+            return;
+        }
+        for (final Entry entry : entries.toArray(new Entry[0])) {
+            this.remove(entry);
+            ++this.invalidated;
+        }
+    }
+
+    public void clear() {
+        this.entries.clear();
+        this.entriesByChunk.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of paths dropped as a block changed in a chunk they pass through.
+     */
+    public long getInvalidated() {
+        return this.invalidated;
+    }
+
+    private void remove(final Entry entry) {
+        this.entries.remove(entry.key);
+        for (final long chunk : entry.chunks) {
+            final @Nullable ReferenceOpenHashSet<Entry> entries = this.entriesByChunk.get(chunk);
+            if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+                this.entriesByChunk.remove(chunk);
+            }
+        }
+    }
+
+    private static long[] coveredChunks(final Path path) {
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < path.getNodeCount(); ++i) {
+            final Node node = path.getNode(i);
+            minX = Math.min(minX, node.x);
+            minZ = Math.min(minZ, node.z);
+            maxX = Math.max(maxX, node.x);
+            maxZ = Math.max(maxZ, node.z);
+        }
+        // the blocks next to the nodes decide whether a node can be walked on as well
+        final int minChunkX = (minX - 1) >> 4;
+        final int minChunkZ = (minZ - 1) >> 4;
+        final int maxChunkX = (maxX + 1) >> 4;
+        final int maxChunkZ = (maxZ + 1) >> 4;
+        final long[] chunks = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+        int i = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+                chunks[i++] = ChunkPos.asLong(chunkX, chunkZ);
+            }
+        }
+        return chunks;
+    }
+
+    private static Path copy(final Path path) {
+        final List<Node> nodes = new ArrayList<>(path.getNodeCount());
+        for (int i = 0; i < path.getNodeCount(); ++i) {
+            nodes.add(path.getNode(i));
+        }
+        return new Path(nodes, path.getTarget(), path.canReach());
+    }
+
+    private record Entry(Key key, Path path, int tick, long[] chunks) {
+    }
+
+    /**
+     * What a path search depends on besides the blocks around it.
+     *
+     * @param type the type of the mob
+     * @param navigation the type of the navigation, which decides the node evaluator
+     * @param width the width of the mob
+     * @param height the height of the mob
+     * @param evaluatorFlags the options of the node evaluator
+     * @param malus the pathfinding malus of the mob for each path type, which goals change at runtime
+     * @param maxFallDistance the distance the mob may fall, which depends on its health and target
+     * @param stepHeight the height the mob may step up
+     * @param start the block the search starts at
+     * @param targets the blocks the search goes to
+     * @param accuracy the distance at which a target counts as reached
+     * @param maxRange the distance the path may cover
+     * @param regionSize the distance from the start the search looks at blocks in
+     * @param searchDepthMultiplier the multiplier of the number of nodes the search may visit
+     */
+    public record Key(
+        EntityType<?> type,
+        Class<?> navigation,
+        float width,
+        float height,
+        int evaluatorFlags,
+        Malus malus,
+        int maxFallDistance,
+        float stepHeight,
+        long start,
+        Set<BlockPos> targets,
+        int accuracy,
+        float maxRange,
+        int regionSize,
+        float searchDepthMultiplier
+    ) {
+
+        public static Key of(
+            final Mob mob,
+            final PathNavigation navigation,
+            final BlockPos start,
+            final Set<BlockPos> targets,
+            final int accuracy,
+            final float maxRange,
+            final int regionSize,
+            final float searchDepthMultiplier
+        ) {
+            final NodeEvaluator evaluator = navigation.getNodeEvaluator();
+            final int evaluatorFlags = (evaluator.canPassDoors() ? 1 : 0)
+                | (evaluator.canOpenDoors() ? 2 : 0)
+                | (evaluator.canFloat() ? 4 : 0)
+                | (evaluator.canWalkOverFences() ? 8 : 0);
+            final PathType[] pathTypes = PathType.values();
+            final float[] malus = new float[pathTypes.length];
+            for (int i = 0; i < pathTypes.length; ++i) {
+                malus[i] = mob.getPathfindingMalus(pathTypes[i]);
+            }
+            return new Key(
+                mob.getType(), navigation.getClass(), mob.getBbWidth(), mob.getBbHeight(), evaluatorFlags,
+                new Malus(malus), mob.getMaxFallDistance(), mob.maxUpStep(),
+                start.asLong(), Set.copyOf(targets), accuracy, maxRange, regionSize, searchDepthMultiplier
+            );
+        }
+    }
+
+    /**
+     * The pathfinding malus of a mob for each path type, in the order of {@link PathType#values()}.
+     */
+    public record Malus(float[] values) {
+
+        @Override
+        public boolean equals(final @Nullable Object obj) {
+            return obj instanceof final Malus other && Arrays.equals(this.values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.values);
+        }
+
+        @Override
+        public String toString() {
+            return "Malus" + Arrays.toString(this.values);
+        }
+    }
+}
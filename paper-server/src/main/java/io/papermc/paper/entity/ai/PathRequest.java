@@ -0,0 +1,127 @@
+package io.papermc.paper.entity.ai;
+
+import java.util.Set;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.level.PathNavigationRegion;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.level.pathfinder.PathFinder;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A path search requested by a navigation, found by the {@link AiPlanner} at the start of the next entity tick and
+ * then handed back to the navigation.
+ * <p>
+ * The region is created when the path is requested, so the search sees the chunks that were loaded at that point. While
+ * the search runs, the main thread waits for it and the navigation's path finder is not used by anything else.
+ */
+@NullMarked
+public final class PathRequest {
+
+    private final PathNavigation navigation;
+    private final Mob mob;
+    private final PathFinder pathFinder;
+    private final PathNavigationRegion region;
+    private final Set<BlockPos> targets;
+    private final float maxRange;
+    private final int accuracy;
+    private final float searchDepthMultiplier;
+    private final double speed;
+    private final boolean countsFailures;
+    private final PathCache.@Nullable Key cacheKey;
+    private @Nullable Path path;
+    private @Nullable RuntimeException failure;
+    private boolean cancelled;
+
+    public PathRequest(
+        final PathNavigation navigation,
+        final Mob mob,
+        final PathFinder pathFinder,
+        final PathNavigationRegion region,
+        final Set<BlockPos> targets,
+        final float maxRange,
+        final int accuracy,
+        final float searchDepthMultiplier,
+        final double speed,
+        final boolean countsFailures,
+        final PathCache.@Nullable Key cacheKey
+    ) {
+        this.navigation = navigation;
+        this.mob = mob;
+        this.pathFinder = pathFinder;
+        this.region = region;
+        this.targets = targets;
+        this.maxRange = maxRange;
+        this.accuracy = accuracy;
+        this.searchDepthMultiplier = searchDepthMultiplier;
+        this.speed = speed;
+        this.countsFailures = countsFailures;
+        this.cacheKey = cacheKey;
+    }
+
+    void find() {
+        try {
+            this.path = this.pathFinder.findPath(this.region, this.mob, this.targets, this.maxRange, this.accuracy, this.searchDepthMultiplier);
+        } catch (final RuntimeException e) {
+            // only this mob is affected, the search counts as having found no path
+            this.failure = e;
+        }
+    }
+
+    public PathNavigation navigation() {
+        return this.navigation;
+    }
+
+    public Mob mob() {
+        return this.mob;
+    }
+
+    /**
+     * Returns the path found, or {@code null} if no path was found or the search did not run yet.
+     */
+    public @Nullable Path path() {
+        return this.path;
+    }
+
+    /**
+     * Returns the exception thrown by the search, or {@code null} if it did not throw.
+     */
+    public @Nullable RuntimeException failure() {
+        return this.failure;
+    }
+
+    public int accuracy() {
+        return this.accuracy;
+    }
+
+    public double speed() {
+        return this.speed;
+    }
+
+    /**
+     * Returns whether the navigation backs off from moving to its target after this search failed repeatedly.
+     */
+    public boolean countsFailures() {
+        return this.countsFailures;
+    }
+
+    /**
+     * Returns the key to cache the path found under, or {@code null} if it is not cached.
+     */
+    public PathCache.@Nullable Key cacheKey() {
+        return this.cacheKey;
+    }
+
+    /**
+     * Cancels the request, as the navigation does not want the path anymore.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+}
@@ -0,0 +1,275 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.papermc.paper.adventure.PaperAdventure;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import net.minecraft.network.CompressionEncoder;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.PacketBundleUnpacker;
+import net.minecraft.network.PacketEncoder;
+import net.minecraft.network.PacketListener;
+import net.minecraft.network.VarInt;
+import net.minecraft.network.Varint21LengthFieldPrepender;
+import net.minecraft.network.protocol.BundlePacket;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.PacketType;
+import net.minecraft.network.protocol.game.ClientboundSetDefaultSpawnPositionPacket;
+import net.minecraft.server.level.ServerPlayer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A packet sent to many connections, encoded once instead of once per connection.
+ * <p>
+ * The first connection writing the packet encodes it, and compresses it if the connection uses compression. The
+ * resulting frame is shared with every following connection using the same protocol and compression threshold, and
+ * the same locale if the packet contains components rendered for the locale, and written directly to the part of the
+ * pipeline after the packet encoder (or after the compression encoder), so only the length prefix and encryption are
+ * still done per connection. Connections encoding the same frame at once each encode it, and keep the frame which was
+ * stored first.
+ * <p>
+ * Connections with other outbound handlers than vanilla ones in front of the encoder, such as those added by plugins
+ * inspecting packets, and packets which do not encode well enough to be shared, are written as the wrapped packet. So
+ * are packets which fail to encode or are too large, so the encoder of each connection reports them as usual. Shared
+ * frames are accounted for by the encoder of each connection they are written to.
+ */
+@NullMarked
+public final class BroadcastPacket<T extends PacketListener> implements Packet<T> {
+
+    private static final String ENCODER = "encoder";
+    private static final int MAX_SHARED_SIZE = 1 << 20;
+    private static final Frame UNSHARED = new Frame(Unpooled.EMPTY_BUFFER, 0);
+    private static final int LOCALE_UNKNOWN = 0;
+    private static final int LOCALIZED = 1;
+    private static final int NOT_LOCALIZED = 2;
+
+    private final Packet<T> packet;
+    private final Map<Variant, Frame> frames = new ConcurrentHashMap<>(4);
+    private final @Nullable IntConsumer frameListener;
+    // whether the encoding of the packet depends on the locale of the connection
+    private volatile int localized = LOCALE_UNKNOWN;
+
+    private BroadcastPacket(final Packet<T> packet, final @Nullable IntConsumer frameListener) {
+        this.packet = packet;
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Wraps a packet about to be sent to the given number of connections, if sharing its encoding is worth it.
+     *
+     * @return the packet to send to each connection
+     */
+    public static Packet<?> wrap(final Packet<?> packet, final int recipients) {
+        return recipients < 2 ? packet : share(packet);
+    }
+
+    /**
+     * Wraps a packet which is kept to be sent to several connections over time, if its encoding can be shared.
+     *
+     * @return the packet to send to each connection
+     */
+    public static Packet<?> share(final Packet<?> packet) {
+        return share(packet, null);
+    }
+
+    /**
+     * Wraps a packet which is kept to be sent to several connections over time, if its encoding can be shared.
+     *
+     * @param frameListener called with the size in bytes of each frame the packet keeps, on the event loop encoding it
+     * @return the packet to send to each connection
+     */
+    public static Packet<?> share(final Packet<?> packet, final @Nullable IntConsumer frameListener) {
+        if (!GlobalConfiguration.get().misc.encodeBroadcastPacketsOnce || !canShare(packet)) {
+            return packet;
+        }
+        return new BroadcastPacket<>(packet, frameListener);
+    }
+
+    private static boolean canShare(final Packet<?> packet) {
+        return !(packet instanceof BroadcastPacket<?>)
+            && !(packet instanceof BundlePacket<?>) // split up by the pipeline
+            && !(packet instanceof ClientboundSetDefaultSpawnPositionPacket) // inspected when sent
+            && !packet.isTerminal()
+            && !packet.hasFinishListener()
+            && !packet.hasLargePacketFallback()
+            && (packet.getExtraPackets() == null || packet.getExtraPackets().isEmpty());
+    }
+
+    public Packet<T> packet() {
+        return this.packet;
+    }
+
+    /**
+     * Writes the shared encoding of the packet to a channel, if its pipeline allows it. Must be called on the event
+     * loop of the channel.
+     *
+     * @param needsFuture whether the caller listens to the returned future
+     * @return the future of the write, or {@code null} if the wrapped packet has to be written instead
+     */
+    public @Nullable ChannelFuture write(final Channel channel, final boolean flush, final boolean needsFuture) {
+        final ChannelPipeline pipeline = channel.pipeline();
+        final List<String> names = pipeline.names();
+        final int encoderIndex = names.indexOf(ENCODER);
+        if (encoderIndex < 1 || !(pipeline.get(ENCODER) instanceof final PacketEncoder<?> encoder)) {
+            return null;
+        }
+        for (int i = encoderIndex + 1; i < names.size(); ++i) {
+            final ChannelHandler handler = pipeline.get(names.get(i));
+            if (handler instanceof ChannelOutboundHandler && !(handler instanceof PacketBundleUnpacker)) {
+                return null;
+            }
+        }
+
+        final ChannelHandlerContext encoderContext = pipeline.context(encoder);
+        final ChannelHandler previous = pipeline.get(names.get(encoderIndex - 1));
+        final ChannelHandlerContext context;
+        final @Nullable CompressionEncoder compressionEncoder;
+        final int threshold;
+        if (previous instanceof final CompressionEncoder compression) {
+            context = pipeline.context(compression);
+            compressionEncoder = compression;
+            threshold = compression.getThreshold();
+        } else if (previous instanceof Varint21LengthFieldPrepender) {
+            context = encoderContext;
+            compressionEncoder = null;
+            threshold = -1;
+        } else {
+            return null;
+        }
+        if (encoderContext == null || context == null) {
+            return null;
+        }
+
+        final @Nullable Locale locale = channel.attr(PaperAdventure.LOCALE_ATTRIBUTE).get();
+        Variant variant = new Variant(encoder.protocol(), threshold, this.localized == NOT_LOCALIZED ? null : locale);
+        Frame frame = this.frames.get(variant);
+        if (frame == null) {
+            // encoded outside the map, so event loops encoding other variants do not wait for this one
+            PaperAdventure.resetRenderedForLocale();
+            frame = this.encode(encoderContext, encoder, threshold);
+            if (locale != null) {
+                if (PaperAdventure.renderedForLocale()) {
+                    this.localized = LOCALIZED;
+                } else {
+                    this.localized = NOT_LOCALIZED;
+                    variant = new Variant(variant.protocol(), threshold, null);
+                }
+            }
+            final @Nullable Frame existing = this.frames.putIfAbsent(variant, frame);
+            if (existing != null) {
+                frame = existing;
+            } else if (this.frameListener != null && frame != UNSHARED) {
+                this.frameListener.accept(frame.buffer().capacity());
+            }
+        }
+        if (frame == UNSHARED) {
+            return null;
+        }
+
+        encoder.onSharedPacketSent(encoderContext, this.packet, frame.length());
+        final ByteBuf message = frame.buffer().retainedDuplicate();
+        final ChannelPromise promise = needsFuture ? context.newPromise() : context.voidPromise();
+        if (compressionEncoder != null && compressionEncoder.writeCompressed(context, message, promise, flush)) {
+            // queued behind frames the encoder is compressing off the event loop
+            return promise;
+        }
+        return flush ? context.writeAndFlush(message, promise) : context.write(message, promise);
+    }
+
+    private Frame encode(final ChannelHandlerContext encoderContext, final PacketEncoder<?> encoder, final int threshold) {
+        final ByteBuf payload = Unpooled.buffer();
+        try {
+            encoder.encodeUnwritten(encoderContext, this.packet, payload);
+        } catch (final RuntimeException ignored) {
+            // the encoder of each connection encodes the packet again, logging the failure and skipping the packet if
+            // it is skippable, the same as for packets which are not shared
+            return UNSHARED;
+        }
+        final int length = payload.readableBytes();
+        if (length > MAX_SHARED_SIZE || !PacketEncoder.isAcceptedLength(this.packet, length)) {
+            // the encoder of each connection rejects packets which are too large
+            return UNSHARED;
+        }
+        final ByteBuf frame;
+        if (threshold < 0) {
+            frame = payload;
+        } else {
+            try {
+                frame = compress(encoderContext, payload, threshold);
+            } catch (final Exception ignored) {
+                return UNSHARED;
+            }
+        }
+        // frames are never released, the duplicates written to each connection are unreleasable views of them
+        return new Frame(Unpooled.unreleasableBuffer(frame.asReadOnly()), length);
+    }
+
+    /**
+     * Compresses a payload in the format written by {@link CompressionEncoder}, with the native compressor at the
+     * configured level. The frame is copied to the heap, as it is never released.
+     */
+    private static ByteBuf compress(final ChannelHandlerContext ctx, final ByteBuf payload, final int threshold) throws Exception {
+        final int length = payload.readableBytes();
+        if (length < threshold) {
+            final ByteBuf frame = Unpooled.buffer(length + 1);
+            VarInt.write(frame, 0);
+            frame.writeBytes(payload);
+            return frame;
+        }
+
+        final ByteBuf compressed = CompressionOffload.compress(ctx.alloc(), payload, CompressionOffload.configuredLevel());
+        try {
+            return Unpooled.copiedBuffer(compressed);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    @Override
+    public PacketType<? extends Packet<T>> type() {
+        return this.packet.type();
+    }
+
+    @Override
+    public void handle(final T handler) {
+        this.packet.handle(handler);
+    }
+
+    @Override
+    public boolean isSkippable() {
+        return this.packet.isSkippable();
+    }
+
+    @Override
+    public boolean isReady() {
+        return this.packet.isReady();
+    }
+
+    @Override
+    public void onPacketDispatch(final @Nullable ServerPlayer player) {
+        this.packet.onPacketDispatch(player);
+    }
+
+    private record Variant(ConnectionProtocol protocol, int threshold, @Nullable Locale locale) {
+    }
+
+    /**
+     * @param buffer the frame written to each connection
+     * @param length the length of the encoded packet before compression
+     */
+    private record Frame(ByteBuf buffer, int length) {
+    }
+}
@@ -0,0 +1,192 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.MCUtil;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundLightUpdatePacketData;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Cache of chunk packets, so a chunk sent to several players is only serialised, obfuscated by anti-xray and encoded
+ * once until it changes.
+ * <p>
+ * Every chunk has a plain variant, and a variant obfuscated by the anti-xray engine of its world for players which
+ * are not allowed to bypass it. A cached packet is valid as long as the chunk has not been marked unsaved since it was
+ * created, which happens for all block, block entity, biome and light changes. Obfuscated packets additionally depend
+ * on the blocks of the neighbouring chunks, so they are also invalidated once a neighbour is loaded, unloaded or marked
+ * unsaved. The packets are kept in least recently used order and evicted once their estimated size, including the
+ * encoded frames shared by the packet, exceeds {@code chunk-loading-advanced.chunk-packet-cache-size}.
+ * <p>
+ * Only used on the main thread, apart from the encoded frames being counted when the event loops create them.
+ */
+@NullMarked
+public final class ChunkPacketCache {
+
+    private static final int PLAIN = 0;
+    private static final int OBFUSCATED = 1;
+    private static final long OVERHEAD_BYTES = 512L;
+    private static final int UNLOADED = Integer.MIN_VALUE;
+
+    private static final ReferenceLinkedOpenHashSet<CachedPacket> CACHED = new ReferenceLinkedOpenHashSet<>();
+    private static final Queue<EncodedFrame> ENCODED_FRAMES = new ConcurrentLinkedQueue<>();
+    private static final int[] NEIGHBOURS = new int[4];
+    private static long cachedBytes;
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder INVALIDATIONS = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private ChunkPacketCache() {
+    }
+
+    /**
+     * Returns the chunk packet to send to a player, creating and caching it if there is no valid cached packet.
+     *
+     * @param modifyBlocks whether the blocks of the packet are obfuscated by anti-xray for the player
+     */
+    public static Packet<?> chunkPacket(final ServerLevel level, final LevelChunk chunk, final boolean modifyBlocks) {
+        final long maxBytes = GlobalConfiguration.get().chunkLoadingAdvanced.chunkPacketCacheSize * 1024L * 1024L;
+        if (maxBytes <= 0L || !MCUtil.isMainThread()) {
+            return new ClientboundLevelChunkWithLightPacket(chunk, level.getLightEngine(), null, null, modifyBlocks);
+        }
+
+        Entry entry = chunk.chunkPacketCache;
+        if (entry == null) {
+            chunk.chunkPacketCache = entry = new Entry();
+        }
+        countEncodedFrames();
+        final CachedPacket cached = entry.variants[modifyBlocks ? OBFUSCATED : PLAIN];
+        final int version = chunk.chunkPacketVersion;
+        if (modifyBlocks) {
+            neighbourVersions(level, chunk.getPos(), NEIGHBOURS);
+        } else {
+            Arrays.fill(NEIGHBOURS, 0);
+        }
+        if (cached.packet != null) {
+            if (cached.version == version && Arrays.equals(cached.neighbours, NEIGHBOURS)) {
+                HITS.increment();
+                CACHED.addAndMoveToLast(cached);
+                evict(maxBytes);
+                return cached.packet;
+            }
+            INVALIDATIONS.increment();
+            remove(cached);
+        } else {
+            MISSES.increment();
+        }
+
+        final ClientboundLevelChunkWithLightPacket packet = new ClientboundLevelChunkWithLightPacket(chunk, level.getLightEngine(), null, null, modifyBlocks);
+        final int generation = ++cached.generation;
+        final Packet<?> shared = BroadcastPacket.share(packet, bytes -> ENCODED_FRAMES.add(new EncodedFrame(cached, generation, bytes)));
+        cached.packet = shared;
+        cached.version = version;
+        System.arraycopy(NEIGHBOURS, 0, cached.neighbours, 0, NEIGHBOURS.length);
+        cached.bytes = estimateBytes(packet);
+        CACHED.add(cached);
+        cachedBytes += cached.bytes;
+        evict(maxBytes);
+        return shared;
+    }
+
+    private static void countEncodedFrames() {
+        @Nullable EncodedFrame frame;
+        while ((frame = ENCODED_FRAMES.poll()) != null) {
+            final CachedPacket cached = frame.cached();
+            // frames of packets which were removed since are not part of the cache anymore
+            if (cached.packet != null && cached.generation == frame.generation()) {
+                cached.bytes += frame.bytes();
+                cachedBytes += frame.bytes();
+            }
+        }
+    }
+
+    private static void evict(final long maxBytes) {
+        while (cachedBytes > maxBytes && !CACHED.isEmpty()) {
+            EVICTIONS.increment();
+            remove(CACHED.first());
+        }
+    }
+
+    private static void remove(final CachedPacket cached) {
+        CACHED.remove(cached);
+        cachedBytes -= cached.bytes;
+        cached.packet = null;
+        cached.bytes = 0L;
+    }
+
+    private static void neighbourVersions(final ServerLevel level, final ChunkPos pos, final int[] versions) {
+        // anti-xray reads the blocks of the neighbours, and treats blocks on the border to unloaded chunks differently
+        versions[0] = version(level.getChunkIfLoaded(pos.x - 1, pos.z));
+        versions[1] = version(level.getChunkIfLoaded(pos.x + 1, pos.z));
+        versions[2] = version(level.getChunkIfLoaded(pos.x, pos.z - 1));
+        versions[3] = version(level.getChunkIfLoaded(pos.x, pos.z + 1));
+    }
+
+    private static int version(final @Nullable LevelChunk chunk) {
+        return chunk == null ? UNLOADED : chunk.chunkPacketVersion;
+    }
+
+    private static long estimateBytes(final ClientboundLevelChunkWithLightPacket packet) {
+        final ClientboundLightUpdatePacketData light = packet.getLightData();
+        return OVERHEAD_BYTES
+            + packet.getChunkData().getReadBuffer().readableBytes()
+            + (light.getSkyUpdates().size() + light.getBlockUpdates().size()) * (long) DataLayer.SIZE;
+    }
+
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    public static long misses() {
+        return MISSES.sum();
+    }
+
+    public static long invalidations() {
+        return INVALIDATIONS.sum();
+    }
+
+    public static long evictions() {
+        return EVICTIONS.sum();
+    }
+
+    public static int cachedPackets() {
+        return CACHED.size();
+    }
+
+    public static long cachedBytes() {
+        countEncodedFrames();
+        return cachedBytes;
+    }
+
+    /**
+     * The cached packets of a chunk.
+     */
+    public static final class Entry {
+
+        private final CachedPacket[] variants = {new CachedPacket(), new CachedPacket()};
+    }
+
+    private static final class CachedPacket {
+
+        private @Nullable Packet<?> packet;
+        private int generation;
+        private int version;
+        private final int[] neighbours = new int[4];
+        private long bytes;
+    }
+
+    private record EncodedFrame(CachedPacket cached, int generation, int bytes) {
+    }
+}
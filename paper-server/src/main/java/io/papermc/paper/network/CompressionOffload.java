@@ -0,0 +1,320 @@
+package io.papermc.paper.network;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.util.MoreByteBufUtils;
+import com.velocitypowered.natives.util.Natives;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.VarInt;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Compresses large frames of a connection on a shared pool of worker threads instead of its event loop, if
+ * {@code misc.netty.compression-offload-size} is set.
+ * <p>
+ * The frames written to a compression encoder are kept in order: while a frame is being compressed off the event
+ * loop, the following frames, other messages and flushes are queued behind it (smaller frames are still compressed on
+ * the event loop), and are passed on once every frame before them is done. Frames still queued when the encoder is
+ * removed from the pipeline are released and their writes failed. The compression level of offloaded frames is lowered while
+ * the event loop of the connection has many pending tasks, so a busy event loop is not held back by slow compression
+ * during mass joins.
+ * <p>
+ * An instance belongs to a single compression encoder and is only used on the event loop of its channel. The workers
+ * never time out, and close their native compressors when they exit.
+ */
+@NullMarked
+public final class CompressionOffload {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final int MAX_FRAME_SIZE = 8388608;
+    private static final int DEFAULT_LEVEL = 6;
+    private static final int QUEUED_FRAMES_PER_WORKER = 64;
+    private static final ThreadLocal<Int2ObjectOpenHashMap<VelocityCompressor>> COMPRESSORS = ThreadLocal.withInitial(Int2ObjectOpenHashMap::new);
+
+    private final InlineCompressor inline;
+    private final ArrayDeque<PendingFrame> pending = new ArrayDeque<>();
+    private boolean closed;
+
+    private CompressionOffload(final InlineCompressor inline) {
+        this.inline = inline;
+    }
+
+    /**
+     * Creates the offload of a compression encoder, if offloading compression is enabled.
+     *
+     * @param inline compresses a frame on the event loop the way the encoder does
+     */
+    public static @Nullable CompressionOffload create(final InlineCompressor inline) {
+        return GlobalConfiguration.get().misc.netty.compressionOffloadSize.enabled() ? new CompressionOffload(inline) : null;
+    }
+
+    /**
+     * Writes a frame to compress, compressing it off the event loop if it is large enough.
+     *
+     * @param threshold the compression threshold of the encoder
+     * @return whether the message was handled, otherwise the encoder has to compress it itself
+     */
+    public boolean write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise, final int threshold) {
+        if (!(msg instanceof final ByteBuf payload)) {
+            if (this.pending.isEmpty()) {
+                return false;
+            }
+            // passed on as is, but must not overtake the frames before it
+            final PendingFrame frame = new PendingFrame(promise, false);
+            frame.complete(msg);
+            this.pending.add(frame);
+            return true;
+        }
+        final int size = payload.readableBytes();
+        final boolean offload = threshold >= 0 && size >= threshold && size <= MAX_FRAME_SIZE
+            && GlobalConfiguration.get().misc.netty.compressionOffloadSize.test(minSize -> size >= minSize);
+        if (!offload && this.pending.isEmpty()) {
+            return false;
+        }
+
+        final PendingFrame frame = new PendingFrame(promise, false);
+        this.pending.add(frame);
+        if (offload && this.submit(ctx, payload, frame)) {
+            return true;
+        }
+
+        // queued behind frames still being compressed
+        try {
+            frame.complete(this.inline.compress(ctx, payload));
+        } catch (final Exception e) {
+            frame.fail(e);
+        } finally {
+            payload.release();
+        }
+        this.drain(ctx);
+        return true;
+    }
+
+    /**
+     * Writes a frame which is already compressed, queued behind the frames still being compressed.
+     *
+     * @return whether the frame was queued, otherwise it can be written directly
+     */
+    public boolean writeCompressed(final ChannelHandlerContext ctx, final ByteBuf frame, final ChannelPromise promise, final boolean flush) {
+        if (this.pending.isEmpty()) {
+            return false;
+        }
+        final PendingFrame pendingFrame = new PendingFrame(promise, false);
+        pendingFrame.complete(frame);
+        this.pending.add(pendingFrame);
+        if (flush) {
+            this.pending.add(new PendingFrame(null, true));
+        }
+        return true;
+    }
+
+    /**
+     * Flushes the channel once every frame written before is passed on.
+     *
+     * @return whether the flush was queued, otherwise it can be passed on directly
+     */
+    public boolean flush(final ChannelHandlerContext ctx) {
+        if (this.pending.isEmpty()) {
+            return false;
+        }
+        this.pending.add(new PendingFrame(null, true));
+        return true;
+    }
+
+    /**
+     * Releases the queued frames and fails their writes, as the encoder was removed from the pipeline. Frames still
+     * being compressed are released once they are done.
+     */
+    public void close() {
+        this.closed = true;
+        this.drain(null);
+    }
+
+    private boolean submit(final ChannelHandlerContext ctx, final ByteBuf payload, final PendingFrame frame) {
+        final int level = level(ctx.executor());
+        final ByteBufAllocator alloc = ctx.alloc();
+        try {
+            Workers.POOL.execute(() -> {
+                try {
+                    frame.complete(compress(alloc, payload, level));
+                } catch (final Throwable throwable) {
+                    frame.fail(throwable);
+                } finally {
+                    payload.release();
+                }
+                try {
+                    ctx.executor().execute(() -> this.drain(ctx));
+                } catch (final RejectedExecutionException ignored) {
+                    // the event loop is shutting down along with the channel
+                    frame.discard(new ClosedChannelException());
+                }
+            });
+            return true;
+        } catch (final RejectedExecutionException ignored) {
+            // all workers are busy, compress on the event loop instead
+            return false;
+        }
+    }
+
+    private void drain(final @Nullable ChannelHandlerContext ctx) {
+        @Nullable PendingFrame frame;
+        while ((frame = this.pending.peek()) != null && frame.done) {
+            this.pending.poll();
+            if (this.closed || ctx == null) {
+                frame.discard(new ClosedChannelException());
+            } else if (frame.flush) {
+                ctx.flush();
+            } else if (frame.failure != null) {
+                final EncoderException exception = new EncoderException(frame.failure);
+                frame.promise.tryFailure(exception);
+                ctx.fireExceptionCaught(exception);
+            } else {
+                ctx.write(frame.result, frame.promise);
+            }
+        }
+    }
+
+    /**
+     * Returns the configured compression level, or the default level of the compressors if none is configured.
+     */
+    static int configuredLevel() {
+        final int configured = GlobalConfiguration.get().misc.compressionLevel.or(-1);
+        return configured < 0 ? DEFAULT_LEVEL : configured;
+    }
+
+    /**
+     * Picks the compression level for a frame, lowering the configured level the more tasks the event loop has
+     * pending.
+     */
+    private static int level(final EventExecutor executor) {
+        final int level = configuredLevel();
+        final int busyDepth = GlobalConfiguration.get().misc.netty.compressionOffloadBusyDepth;
+        if (busyDepth <= 0 || !(executor instanceof final SingleThreadEventExecutor eventLoop)) {
+            return level;
+        }
+        final int depth = eventLoop.pendingTasks();
+        if (depth >= busyDepth * 4) {
+            return 1;
+        }
+        if (depth >= busyDepth) {
+            return Math.min(level, 4);
+        }
+        return level;
+    }
+
+    /**
+     * Compresses a payload in the format written by the compression encoder, with the native compressor of the current
+     * thread for the level. The compressors of event loops live as long as the event loops.
+     */
+    static ByteBuf compress(final ByteBufAllocator alloc, final ByteBuf payload, final int level) throws Exception {
+        final VelocityCompressor compressor = COMPRESSORS.get().computeIfAbsent(level, l -> Natives.compress.get().create(l));
+        final int size = payload.readableBytes();
+        final ByteBuf frame = MoreByteBufUtils.preferredBuffer(alloc, compressor, size + 1);
+        try {
+            VarInt.write(frame, size);
+            final ByteBuf compatiblePayload = MoreByteBufUtils.ensureCompatible(alloc, compressor, payload);
+            try {
+                compressor.deflate(compatiblePayload, frame);
+            } finally {
+                compatiblePayload.release();
+            }
+            return frame;
+        } catch (final Exception e) {
+            frame.release();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface InlineCompressor {
+
+        ByteBuf compress(ChannelHandlerContext ctx, ByteBuf payload) throws Exception;
+    }
+
+    private static final class PendingFrame {
+
+        private final @Nullable ChannelPromise promise;
+        private final boolean flush;
+        private @Nullable Object result;
+        private @Nullable Throwable failure;
+        private volatile boolean done;
+
+        private PendingFrame(final @Nullable ChannelPromise promise, final boolean flush) {
+            this.promise = promise;
+            this.flush = flush;
+            this.done = flush;
+        }
+
+        private void complete(final Object result) {
+            this.result = result;
+            this.done = true;
+        }
+
+        private void fail(final Throwable failure) {
+            this.failure = failure;
+            this.done = true;
+        }
+
+        private void discard(final Throwable cause) {
+            ReferenceCountUtil.release(this.result);
+            this.result = null;
+            if (this.promise != null && !this.promise.isVoid()) {
+                this.promise.tryFailure(cause);
+            }
+        }
+    }
+
+    private static final class Workers {
+
+        private static final ThreadPoolExecutor POOL = createPool();
+
+        private static void closeCompressors() {
+            for (final VelocityCompressor compressor : COMPRESSORS.get().values()) {
+                compressor.close();
+            }
+            COMPRESSORS.remove();
+        }
+
+        private static ThreadPoolExecutor createPool() {
+            final int configured = GlobalConfiguration.get().misc.netty.compressionOffloadThreads;
+            final int threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+            LOGGER.info("Compressing large packets on {} worker thread(s)", threads);
+            return new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_FRAMES_PER_WORKER),
+                new ThreadFactoryBuilder()
+                    .setThreadFactory(task -> new Thread(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            // the compressors hold native memory
+                            closeCompressors();
+                        }
+                    }))
+                    .setNameFormat("Paper Compression Worker #%d")
+                    .setDaemon(true)
+                    .setUncaughtExceptionHandler(new net.minecraft.DefaultUncaughtExceptionHandlerWithName(LOGGER))
+                    .build(),
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+        }
+    }
+}
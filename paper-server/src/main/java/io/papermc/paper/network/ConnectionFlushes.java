@@ -0,0 +1,108 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.MCUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import net.minecraft.network.Connection;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Consolidates the flushes of the writes made on the main thread into one flush per connection at the end of the tick,
+ * if {@code misc.netty.flush-once-per-tick} is enabled.
+ * <p>
+ * Writes on the main thread during a tick only mark their connection to be flushed at the end of the tick, unless the
+ * outbound buffer of the connection is above its high water mark, in which case it is flushed right away. Writes from
+ * other threads, and writes on the main thread outside the tick loop, such as the disconnects sent while the server
+ * stops, are flushed as requested.
+ */
+@NullMarked
+public final class ConnectionFlushes {
+
+    private static final List<Connection> SCHEDULED = new ArrayList<>();
+
+    private static final LongAdder TICK_FLUSHES = new LongAdder();
+    private static final LongAdder WATERMARK_FLUSHES = new LongAdder();
+    private static final LongAdder DEFERRED_FLUSHES = new LongAdder();
+
+    private static boolean inTick;
+
+    private ConnectionFlushes() {
+    }
+
+    public static boolean enabled() {
+        return GlobalConfiguration.get().misc.netty.flushOncePerTick;
+    }
+
+    /**
+     * Marks the start of a tick, after which writes on the main thread are flushed by {@link #flushTick()}. Called at
+     * the start of each tick.
+     */
+    public static void beginTick() {
+        inTick = true;
+    }
+
+    /**
+     * Returns whether a write to the connection must be flushed now, scheduling a flush at the end of the tick instead
+     * when it is made on the main thread during a tick.
+     *
+     * @param flush whether the write requested a flush
+     */
+    public static boolean shouldFlush(final Connection connection, final boolean flush) {
+        if (!enabled() || !MCUtil.isMainThread() || !inTick) {
+            if (MCUtil.isMainThread()) {
+                // a tick that threw may have left flushes scheduled
+                flushTick();
+            }
+            if (flush) {
+                connection.flushes.incrementAndGet();
+            }
+            return flush;
+        }
+
+        if (!connection.flushScheduled) {
+            connection.flushScheduled = true;
+            SCHEDULED.add(connection);
+        }
+        if (connection.channel != null && !connection.channel.isWritable()) {
+            WATERMARK_FLUSHES.increment();
+            connection.flushes.incrementAndGet();
+            return true;
+        }
+        if (flush) {
+            DEFERRED_FLUSHES.increment();
+            connection.deferredFlushes.incrementAndGet();
+        }
+        return false;
+    }
+
+    /**
+     * Flushes every connection written to on the main thread since the last call and ends the current tick, so later
+     * writes are flushed right away. Called at the end of each tick and before the connections are stopped.
+     */
+    public static void flushTick() {
+        inTick = false;
+        if (SCHEDULED.isEmpty()) {
+            return;
+        }
+        for (final Connection connection : SCHEDULED) {
+            connection.flushScheduled = false;
+            connection.flushScheduledWrites();
+        }
+        TICK_FLUSHES.add(SCHEDULED.size());
+        SCHEDULED.clear();
+    }
+
+    public static long tickFlushes() {
+        return TICK_FLUSHES.sum();
+    }
+
+    public static long watermarkFlushes() {
+        return WATERMARK_FLUSHES.sum();
+    }
+
+    public static long deferredFlushes() {
+        return DEFERRED_FLUSHES.sum();
+    }
+}
@@ -0,0 +1,189 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.ObfHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.network.protocol.Packet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Limits the rate of the packets received by a connection, as configured in {@code packet-limiter}.
+ * <p>
+ * Each limit is a token bucket refilling at {@code max-packet-rate} packets per second, which holds as many packets as
+ * may be received within {@code interval} seconds before the limit is violated. A bucket is stored as the time at which
+ * it is full again, so a packet is checked with a few operations on a primitive array and without allocating. The
+ * limits applying to a packet class are resolved once per class.
+ * <p>
+ * An instance belongs to a single connection and is only used on its event loop.
+ */
+@NullMarked
+public final class PacketRateLimiter {
+
+    private static final Map<String, Violations> VIOLATIONS = new ConcurrentHashMap<>();
+    private static final String ALL_PACKETS = "all packets";
+    private static volatile @Nullable Limits limits;
+
+    private @Nullable Limits currentLimits;
+    private long[] fullAt = new long[0];
+    private @Nullable String lastViolation;
+
+    /**
+     * Checks a received packet against the limits, and takes it from their buckets if it doesn't violate any.
+     *
+     * @return the action to take, or {@code null} if the packet may be handled
+     */
+    public GlobalConfiguration.PacketLimiter.PacketLimit.@Nullable ViolateAction check(final Packet<?> packet, final long time) {
+        final Limits limits = Limits.current();
+        if (limits != this.currentLimits) {
+            this.currentLimits = limits;
+            this.fullAt = new long[limits.size()];
+            Arrays.fill(this.fullAt, time);
+        }
+
+        if (limits.allPackets && !this.take(limits, 0, time)) {
+            this.lastViolation = null;
+            limits.violations[0].kicked.incrementAndGet();
+            return GlobalConfiguration.PacketLimiter.PacketLimit.ViolateAction.KICK;
+        }
+        for (final int limit : limits.applicable.get(packet.getClass())) {
+            if (!this.take(limits, limit, time)) {
+                this.lastViolation = limits.names[limit];
+                final GlobalConfiguration.PacketLimiter.PacketLimit.ViolateAction action = limits.actions[limit];
+                (action == GlobalConfiguration.PacketLimiter.PacketLimit.ViolateAction.DROP ? limits.violations[limit].dropped : limits.violations[limit].kicked).incrementAndGet();
+                return action;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the packet class whose limit was violated last, or {@code null} if it was the limit of all
+     * packets.
+     */
+    public @Nullable String lastViolation() {
+        return this.lastViolation;
+    }
+
+    private boolean take(final Limits limits, final int limit, final long time) {
+        long fullAt = this.fullAt[limit];
+        // guard against overflow by using subtraction
+        if (fullAt - time < 0) {
+            fullAt = time;
+        }
+        if (fullAt - time > limits.tolerance[limit]) {
+            return false;
+        }
+        this.fullAt[limit] = fullAt + limits.emission[limit];
+        return true;
+    }
+
+    /**
+     * Returns the number of dropped and kicked packets per limited packet class since the start of the server.
+     */
+    public static List<Map.Entry<String, Violations>> violations() {
+        final List<Map.Entry<String, Violations>> violations = new ArrayList<>(VIOLATIONS.entrySet());
+        violations.sort(Map.Entry.comparingByKey());
+        return violations;
+    }
+
+    public static final class Violations {
+
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong kicked = new AtomicLong();
+
+        public long dropped() {
+            return this.dropped.get();
+        }
+
+        public long kicked() {
+            return this.kicked.get();
+        }
+    }
+
+    /**
+     * The limits of a configuration. The limit of all packets is at index 0, the packet specific limits follow.
+     */
+    private static final class Limits {
+
+        private final GlobalConfiguration.PacketLimiter config;
+        private final boolean allPackets;
+        private final long[] emission;
+        private final long[] tolerance;
+        private final GlobalConfiguration.PacketLimiter.PacketLimit.ViolateAction[] actions;
+        private final Class<?>[] classes;
+        private final String[] names;
+        private final Violations[] violations;
+        private final ClassValue<int[]> applicable = new ClassValue<>() {
+            @Override
+            protected int[] computeValue(final Class<?> type) {
+                final List<Integer> applicable = new ArrayList<>(1);
+                for (Class<?> check = type; check != null && check != Object.class; check = check.getSuperclass()) {
+                    for (int limit = 1; limit < Limits.this.classes.length; ++limit) {
+                        if (Limits.this.classes[limit] == check) {
+                            applicable.add(limit);
+                        }
+                    }
+                }
+                return applicable.stream().mapToInt(Integer::intValue).toArray();
+            }
+        };
+
+        private Limits(final GlobalConfiguration.PacketLimiter config) {
+            this.config = config;
+            final List<GlobalConfiguration.PacketLimiter.PacketLimit> limits = new ArrayList<>();
+            final List<Class<?>> classes = new ArrayList<>();
+            limits.add(config.allPackets);
+            classes.add(Object.class);
+            config.overrides.forEach((packetClass, limit) -> {
+                if (limit.isEnabled()) {
+                    limits.add(limit);
+                    classes.add(packetClass);
+                }
+            });
+
+            this.allPackets = config.allPackets.isEnabled();
+            this.emission = new long[limits.size()];
+            this.tolerance = new long[limits.size()];
+            this.actions = new GlobalConfiguration.PacketLimiter.PacketLimit.ViolateAction[limits.size()];
+            this.classes = classes.toArray(new Class<?>[0]);
+            this.names = new String[limits.size()];
+            this.violations = new Violations[limits.size()];
+            for (int i = 0; i < limits.size(); ++i) {
+                final GlobalConfiguration.PacketLimiter.PacketLimit limit = limits.get(i);
+                final double emission = 1.0e9 / limit.maxPacketRate();
+                this.emission[i] = (long) emission;
+                // the packet bringing the rate over the interval up to max-packet-rate is the first one violating the limit
+                this.tolerance[i] = (long) (limit.interval() * 1.0e9 - 2.0 * emission);
+                this.actions[i] = limit.action();
+                if (i == 0) {
+                    this.names[i] = ALL_PACKETS;
+                } else {
+                    final String deobfedPacketName = ObfHelper.INSTANCE.deobfClassName(this.classes[i].getName());
+                    this.names[i] = deobfedPacketName.substring(deobfedPacketName.lastIndexOf('.') + 1);
+                }
+                this.violations[i] = VIOLATIONS.computeIfAbsent(this.names[i], name -> new Violations());
+            }
+        }
+
+        private static Limits current() {
+            final GlobalConfiguration.PacketLimiter config = GlobalConfiguration.get().packetLimiter;
+            Limits limits = PacketRateLimiter.limits;
+            if (limits == null || limits.config != config) {
+                // the configuration was (re)loaded
+                limits = new Limits(config);
+                PacketRateLimiter.limits = limits;
+            }
+            return limits;
+        }
+
+        private int size() {
+            return this.emission.length;
+        }
+    }
+}
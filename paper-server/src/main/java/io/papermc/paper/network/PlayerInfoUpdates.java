@@ -0,0 +1,334 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.MCUtil;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundPlayerInfoUpdatePacket;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.players.PlayerList;
+import net.minecraft.world.entity.player.PlayerModelPart;
+import net.minecraft.world.level.GameType;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Coalesces the player info updates of a tick into one packet per receiving player, if
+ * {@code misc.aggregate-player-info-updates} is enabled.
+ * <p>
+ * Game mode, display name, hat, list order and latency updates are queued per player and sent at the end of the tick
+ * of the player list, along with the updates of every other player the receiver can see. Updates which do not change
+ * what was last sent for a player, such as the periodic latency update of an idle player, are left out. Updates queued
+ * off the main thread, or while aggregation is disabled, are sent right away. Updates made through the API are always
+ * sent right away, so plugins see the same behaviour as without aggregation.
+ * <p>
+ * The values last sent for a player are taken from the add player update, and from every update sent for the player
+ * after it. A value only counts as sent once every receiver got it, so a value sent to a single receiver, or sent off
+ * the main thread, makes the next update of that value go out to everyone again.
+ */
+@NullMarked
+public final class PlayerInfoUpdates {
+
+    private static final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> AGGREGATED = EnumSet.of(
+        ClientboundPlayerInfoUpdatePacket.Action.UPDATE_GAME_MODE,
+        ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LATENCY,
+        ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME,
+        ClientboundPlayerInfoUpdatePacket.Action.UPDATE_HAT,
+        ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER
+    );
+
+    private final PlayerList playerList;
+    private final Reference2ObjectLinkedOpenHashMap<ServerPlayer, Pending> pending = new Reference2ObjectLinkedOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<ServerPlayer, Sent> sent = new Reference2ObjectOpenHashMap<>();
+    private final Queue<SentOffMain> sentOffMain = new ConcurrentLinkedQueue<>();
+    private boolean latencyQueued;
+
+    private long updates;
+    private long packets;
+    private long unchanged;
+
+    public PlayerInfoUpdates(final PlayerList playerList) {
+        this.playerList = playerList;
+    }
+
+    public static boolean enabled() {
+        return GlobalConfiguration.get().misc.aggregatePlayerInfoUpdates;
+    }
+
+    /**
+     * Queues an update of a player's info to everyone who can see the player.
+     */
+    public void queue(final ServerPlayer subject, final ClientboundPlayerInfoUpdatePacket.Action action) {
+        if (!enabled() || !MCUtil.isMainThread() || !AGGREGATED.contains(action)) {
+            this.send(subject, action);
+            return;
+        }
+        final Pending pending = this.pending.computeIfAbsent(subject, s -> new Pending());
+        pending.actions.add(action);
+        ++pending.updates;
+    }
+
+    /**
+     * Sends an update of a player's info to everyone who can see the player right away, as updates made through the API
+     * are expected to be.
+     */
+    public void send(final ServerPlayer subject, final ClientboundPlayerInfoUpdatePacket.Action action) {
+        final ClientboundPlayerInfoUpdatePacket packet = new ClientboundPlayerInfoUpdatePacket(action, subject);
+        final CraftPlayer bukkitSubject = subject.getBukkitEntity();
+        for (final ServerPlayer receiver : this.playerList.players) {
+            if (receiver.getBukkitEntity().canSee(bukkitSubject)) {
+                receiver.connection.send(packet);
+            }
+        }
+        if (AGGREGATED.contains(action)) {
+            if (MCUtil.isMainThread()) {
+                this.sent(subject).update(subject, action);
+            } else {
+                this.sentOffMain.add(new SentOffMain(subject, action));
+            }
+        }
+    }
+
+    /**
+     * Sends a queued update of a player's info right away, for vanilla code paths the API goes through.
+     */
+    public void sendQueued(final ServerPlayer subject, final ClientboundPlayerInfoUpdatePacket.Action action) {
+        final @Nullable Pending pending = this.pending.get(subject);
+        if (pending != null && pending.actions.remove(action)) {
+            if (pending.actions.isEmpty()) {
+                this.pending.remove(subject);
+            }
+            this.send(subject, action);
+        }
+    }
+
+    /**
+     * Remembers the values of a player sent in an add player update. Called on the main thread after the update was
+     * sent.
+     *
+     * @param everyone whether the update was sent to everyone who can see the player, as when the player joins
+     */
+    public void added(final ServerPlayer subject, final boolean everyone) {
+        this.sent(subject).added(subject, everyone);
+    }
+
+    /**
+     * Queues the periodic latency update of every player.
+     */
+    public void queueLatency() {
+        this.latencyQueued = true;
+        for (final ServerPlayer subject : this.playerList.players) {
+            this.pending.computeIfAbsent(subject, s -> new Pending()).actions.add(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LATENCY);
+        }
+        // drop the state of players who left since the last latency update
+        this.sent.keySet().removeIf(ServerPlayer::hasDisconnected);
+    }
+
+    /**
+     * Remembers the latencies sent by the periodic latency update while aggregation is disabled.
+     */
+    public void latencySent() {
+        for (final ServerPlayer subject : this.playerList.players) {
+            this.sent(subject).update(subject, ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LATENCY);
+        }
+        this.sent.keySet().removeIf(ServerPlayer::hasDisconnected);
+    }
+
+    /**
+     * Sends the updates queued during the tick. Called at the end of the tick of the player list.
+     */
+    public void flush() {
+        @Nullable SentOffMain sentOffMain;
+        while ((sentOffMain = this.sentOffMain.poll()) != null) {
+            this.sent(sentOffMain.subject()).unknown.add(sentOffMain.action());
+        }
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        final List<ServerPlayer> receivers = this.playerList.players;
+        final List<ServerPlayer> subjects = new ArrayList<>(this.pending.size());
+        final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions = EnumSet.noneOf(ClientboundPlayerInfoUpdatePacket.Action.class);
+        for (final Map.Entry<ServerPlayer, Pending> entry : this.pending.entrySet()) {
+            final ServerPlayer subject = entry.getKey();
+            if (subject.hasDisconnected() || subject.connection == null) {
+                continue;
+            }
+            final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> changed = this.changed(subject, entry.getValue().actions);
+            if (changed.isEmpty()) {
+                ++this.unchanged;
+                continue;
+            }
+            subjects.add(subject);
+            actions.addAll(changed);
+        }
+        if (this.latencyQueued) {
+            // sent as one packet per receiver before
+            this.updates += receivers.size();
+            this.latencyQueued = false;
+        }
+
+        if (!subjects.isEmpty()) {
+            final int[] updatesPerSubject = new int[subjects.size()];
+            for (int i = 0; i < subjects.size(); ++i) {
+                updatesPerSubject[i] = this.pending.get(subjects.get(i)).updates;
+            }
+            @Nullable Packet<?> shared = null;
+            for (final ServerPlayer receiver : receivers) {
+                final CraftPlayer bukkitReceiver = receiver.getBukkitEntity();
+                final List<ServerPlayer> visible = new ArrayList<>(subjects.size());
+                for (int i = 0; i < subjects.size(); ++i) {
+                    final ServerPlayer subject = subjects.get(i);
+                    if (bukkitReceiver.canSee(subject.getBukkitEntity())) {
+                        visible.add(subject);
+                        this.updates += updatesPerSubject[i];
+                    }
+                }
+                if (visible.isEmpty()) {
+                    continue;
+                }
+                final Packet<?> packet;
+                if (visible.size() == subjects.size()) {
+                    if (shared == null) {
+                        shared = BroadcastPacket.wrap(new ClientboundPlayerInfoUpdatePacket(actions, subjects), receivers.size());
+                    }
+                    packet = shared;
+                } else {
+                    packet = new ClientboundPlayerInfoUpdatePacket(actions, visible);
+                }
+                receiver.connection.send(packet);
+                ++this.packets;
+            }
+        }
+        this.pending.clear();
+    }
+
+    /**
+     * Returns the queued actions which change what was last sent for a player, and remembers the values sent.
+     */
+    private EnumSet<ClientboundPlayerInfoUpdatePacket.Action> changed(final ServerPlayer subject, final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions) {
+        final Sent sent = this.sent(subject);
+        final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> changed = EnumSet.noneOf(ClientboundPlayerInfoUpdatePacket.Action.class);
+        for (final ClientboundPlayerInfoUpdatePacket.Action action : actions) {
+            if (sent.update(subject, action)) {
+                changed.add(action);
+            }
+        }
+        return changed;
+    }
+
+    private Sent sent(final ServerPlayer subject) {
+        return this.sent.computeIfAbsent(subject, s -> new Sent());
+    }
+
+    /**
+     * Returns the number of packets the queued updates would have been sent as without aggregation.
+     */
+    public long updates() {
+        return this.updates;
+    }
+
+    public long packets() {
+        return this.packets;
+    }
+
+    /**
+     * Returns the number of queued player updates left out because they did not change anything.
+     */
+    public long unchanged() {
+        return this.unchanged;
+    }
+
+    private static final class Pending {
+
+        private final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions = EnumSet.noneOf(ClientboundPlayerInfoUpdatePacket.Action.class);
+        private int updates;
+    }
+
+    private record SentOffMain(ServerPlayer subject, ClientboundPlayerInfoUpdatePacket.Action action) {
+    }
+
+    private static final class Sent {
+
+        // the actions whose value may differ between receivers, or was never sent
+        private final EnumSet<ClientboundPlayerInfoUpdatePacket.Action> unknown = EnumSet.copyOf(AGGREGATED);
+        private int latency;
+        private GameType gameMode = GameType.DEFAULT_MODE;
+        private @Nullable Component displayName;
+        private boolean showHat;
+        private int listOrder;
+
+        /**
+         * Remembers the values of the player sent in an add player update.
+         *
+         * @param everyone whether every receiver got the update
+         */
+        private void added(final ServerPlayer player, final boolean everyone) {
+            for (final ClientboundPlayerInfoUpdatePacket.Action action : AGGREGATED) {
+                if (this.set(player, action) && !everyone) {
+                    this.unknown.add(action);
+                }
+            }
+            if (everyone) {
+                this.unknown.clear();
+            }
+        }
+
+        /**
+         * Remembers the current value of the player for an action sent to every receiver.
+         *
+         * @return whether it may differ from the value a receiver got before
+         */
+        private boolean update(final ServerPlayer player, final ClientboundPlayerInfoUpdatePacket.Action action) {
+            final boolean changed = this.set(player, action);
+            return this.unknown.remove(action) || changed;
+        }
+
+        private boolean set(final ServerPlayer player, final ClientboundPlayerInfoUpdatePacket.Action action) {
+            switch (action) {
+                case UPDATE_GAME_MODE -> {
+                    final GameType gameMode = player.gameMode();
+                    final boolean changed = gameMode != this.gameMode;
+                    this.gameMode = gameMode;
+                    return changed;
+                }
+                case UPDATE_LATENCY -> {
+                    final int latency = player.connection.latency();
+                    final boolean changed = latency != this.latency;
+                    this.latency = latency;
+                    return changed;
+                }
+                case UPDATE_DISPLAY_NAME -> {
+                    final @Nullable Component displayName = player.getTabListDisplayName();
+                    final boolean changed = !Objects.equals(displayName, this.displayName);
+                    this.displayName = displayName;
+                    return changed;
+                }
+                case UPDATE_HAT -> {
+                    final boolean showHat = player.isModelPartShown(PlayerModelPart.HAT);
+                    final boolean changed = showHat != this.showHat;
+                    this.showHat = showHat;
+                    return changed;
+                }
+                case UPDATE_LIST_ORDER -> {
+                    final int listOrder = player.getTabListOrder();
+                    final boolean changed = listOrder != this.listOrder;
+                    this.listOrder = listOrder;
+                    return changed;
+                }
+                default -> {
+                    return true;
+                }
+            }
+        }
+    }
+}
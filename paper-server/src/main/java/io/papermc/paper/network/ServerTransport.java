@@ -0,0 +1,86 @@
+package io.papermc.paper.network;
+
+import com.mojang.logging.LogUtils;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+
+/**
+ * Selection of the io_uring transport and the socket options of accepted connections, as configured in
+ * {@code misc.netty}.
+ */
+@NullMarked
+public final class ServerTransport {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    // only warned about once instead of for every connection
+    private static volatile boolean warnedWaterMarks;
+
+    private ServerTransport() {
+    }
+
+    /**
+     * Returns whether the server listener should use the io_uring transport. Logs why it cannot be used if it is
+     * enabled but unavailable, in which case the listener falls back to epoll.
+     */
+    public static boolean useIoUring() {
+        if (!GlobalConfiguration.get().misc.netty.useIoUring) {
+            return false;
+        }
+        try {
+            if (IOUring.isAvailable()) {
+                return true;
+            }
+            LOGGER.warn("io_uring is not available, falling back to epoll: {}", IOUring.unavailabilityCause().toString());
+        } catch (final LinkageError e) {
+            // no native library for this platform
+            LOGGER.warn("io_uring is not available on this platform, falling back to epoll", e);
+        }
+        return false;
+    }
+
+    /**
+     * Applies the configured socket options to a newly accepted connection. Options the transport of the channel does
+     * not support are ignored.
+     */
+    public static void configureChannel(final Channel channel) {
+        final GlobalConfiguration.Misc.Netty config = GlobalConfiguration.get().misc.netty;
+        setOption(channel, ChannelOption.TCP_NODELAY, config.tcpNoDelay);
+        if (config.sendBufferSize.isDefined()) {
+            setOption(channel, ChannelOption.SO_SNDBUF, config.sendBufferSize.intValue());
+        }
+        if (config.writeBufferHighWaterMark.isDefined() || config.writeBufferLowWaterMark.isDefined()) {
+            final int high = config.writeBufferHighWaterMark.or(WriteBufferWaterMark.DEFAULT.high());
+            final int low = config.writeBufferLowWaterMark.or(Math.min(WriteBufferWaterMark.DEFAULT.low(), high));
+            if (low <= high) {
+                setOption(channel, ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(low, high));
+            } else if (!warnedWaterMarks) {
+                warnedWaterMarks = true;
+                LOGGER.warn("The write buffer low water mark ({}) is above the high water mark ({}), ignoring both", low, high);
+            }
+        }
+        if (config.tcpQuickAck) {
+            if (channel instanceof EpollSocketChannel) {
+                setOption(channel, EpollChannelOption.TCP_QUICKACK, true);
+            } else if (channel instanceof IOUringSocketChannel) {
+                setOption(channel, IOUringChannelOption.TCP_QUICKACK, true);
+            }
+        }
+    }
+
+    private static <T> void setOption(final Channel channel, final ChannelOption<T> option, final T value) {
+        try {
+            channel.config().setOption(option, value);
+        } catch (final ChannelException ignored) {
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.papermc.paper.plugin.manager;
+
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Calls all listeners of one baked {@link org.bukkit.event.HandlerList} for an event.
+ */
+interface EventDispatcher {
+
+    void dispatch(@NotNull Event event);
+}
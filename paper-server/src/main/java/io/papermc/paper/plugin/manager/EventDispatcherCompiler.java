@@ -0,0 +1,176 @@
+package io.papermc.paper.plugin.manager;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INSTANCEOF;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V21;
+
+/**
+ * Compiles the baked listeners of a handler list into a hidden class calling all of them from a single method.
+ * <p>
+ * For every listener the generated code checks if its plugin is enabled, skips it for cancelled events if it ignores
+ * cancelled events, and invokes its executor, in the same order and with the same exception handling as
+ * {@link PaperEventManager#callListeners}. Listeners, executors and plugins are loaded as dynamic constants from the
+ * class data, so every call site in the generated method only ever sees one receiver and can be inlined by the JIT.
+ * Listeners of a {@link RegisteredListener} subclass are called through {@link RegisteredListener#callEvent(Event)}
+ * instead, as they may override it. Calls are counted and sampled by the listener's
+ * {@link EventListenerProfiler.ListenerStats}, like in the loop.
+ */
+final class EventDispatcherCompiler {
+
+    /**
+     * Handler lists with more listeners are not compiled, the generated method would not be inlined or compiled well.
+     */
+    static final int MAX_LISTENERS = 512;
+
+    private static final String CLASS_NAME = Type.getInternalName(EventDispatcher.class) + "$Compiled";
+    private static final Handle CLASS_DATA_AT = new Handle(
+        H_INVOKESTATIC,
+        Type.getInternalName(MethodHandles.class),
+        "classDataAt",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;I)Ljava/lang/Object;",
+        false
+    );
+
+    private static final String EVENT = Type.getInternalName(Event.class);
+    private static final String CANCELLABLE = Type.getInternalName(Cancellable.class);
+    private static final String PLUGIN = Type.getInternalName(Plugin.class);
+    private static final String EVENT_EXECUTOR = Type.getInternalName(EventExecutor.class);
+    private static final String REGISTERED_LISTENER = Type.getInternalName(RegisteredListener.class);
+    private static final String EVENT_MANAGER = Type.getInternalName(PaperEventManager.class);
+    private static final String LISTENER_STATS = Type.getInternalName(EventListenerProfiler.ListenerStats.class);
+
+    private EventDispatcherCompiler() {
+    }
+
+    @NotNull
+    static EventDispatcher compile(@NotNull final PaperEventManager eventManager, @NotNull final RegisteredListener[] listeners, @NotNull final EventListenerProfiler.ListenerStats[] stats) throws ReflectiveOperationException {
+        final ClassData classData = new ClassData();
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(V21, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, CLASS_NAME, null, "java/lang/Object", new String[] {Type.getInternalName(EventDispatcher.class)});
+
+        final MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        final MethodVisitor dispatch = writer.visitMethod(ACC_PUBLIC, "dispatch", "(L" + EVENT + ";)V", null, null);
+        dispatch.visitCode();
+        for (int i = 0; i < listeners.length; ++i) {
+            final RegisteredListener registration = listeners[i];
+            final Label next = new Label();
+
+            classData.load(dispatch, registration.getPlugin(), Plugin.class);
+            dispatch.visitMethodInsn(INVOKEINTERFACE, PLUGIN, "isEnabled", "()Z", true);
+            dispatch.visitJumpInsn(IFEQ, next);
+
+            final boolean plain = registration.getClass() == RegisteredListener.class;
+            if (plain && registration.isIgnoringCancelled()) {
+                final Label call = new Label();
+                dispatch.visitVarInsn(ALOAD, 1);
+                dispatch.visitTypeInsn(INSTANCEOF, CANCELLABLE);
+                dispatch.visitJumpInsn(IFEQ, call);
+                dispatch.visitVarInsn(ALOAD, 1);
+                dispatch.visitTypeInsn(CHECKCAST, CANCELLABLE);
+                dispatch.visitMethodInsn(INVOKEINTERFACE, CANCELLABLE, "isCancelled", "()Z", true);
+                dispatch.visitJumpInsn(IFNE, next);
+                dispatch.visitLabel(call);
+            }
+
+            final Label tryStart = new Label();
+            final Label tryEnd = new Label();
+            final Label handler = new Label();
+            dispatch.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/Throwable");
+            dispatch.visitLabel(tryStart);
+            final Label direct = new Label();
+            classData.load(dispatch, stats[i], EventListenerProfiler.ListenerStats.class);
+            dispatch.visitMethodInsn(INVOKEVIRTUAL, LISTENER_STATS, "sample", "()Z", false);
+            dispatch.visitJumpInsn(IFEQ, direct);
+            classData.load(dispatch, stats[i], EventListenerProfiler.ListenerStats.class);
+            classData.load(dispatch, registration, RegisteredListener.class);
+            dispatch.visitVarInsn(ALOAD, 1);
+            dispatch.visitMethodInsn(INVOKEVIRTUAL, LISTENER_STATS, "callSampled", "(L" + REGISTERED_LISTENER + ";L" + EVENT + ";)V", false);
+            dispatch.visitJumpInsn(GOTO, tryEnd);
+            dispatch.visitLabel(direct);
+            if (plain) {
+                classData.load(dispatch, registration.getExecutor(), EventExecutor.class);
+                classData.load(dispatch, registration.getListener(), Listener.class);
+                dispatch.visitVarInsn(ALOAD, 1);
+                dispatch.visitMethodInsn(INVOKEINTERFACE, EVENT_EXECUTOR, "execute", "(L" + Type.getInternalName(Listener.class) + ";L" + EVENT + ";)V", true);
+            } else {
+                classData.load(dispatch, registration, RegisteredListener.class);
+                dispatch.visitVarInsn(ALOAD, 1);
+                dispatch.visitMethodInsn(INVOKEVIRTUAL, REGISTERED_LISTENER, "callEvent", "(L" + EVENT + ";)V", false);
+            }
+            dispatch.visitLabel(tryEnd);
+            dispatch.visitJumpInsn(GOTO, next);
+
+            dispatch.visitLabel(handler);
+            dispatch.visitVarInsn(ASTORE, 2);
+            classData.load(dispatch, eventManager, PaperEventManager.class);
+            classData.load(dispatch, registration, RegisteredListener.class);
+            dispatch.visitVarInsn(ALOAD, 1);
+            dispatch.visitVarInsn(ALOAD, 2);
+            dispatch.visitMethodInsn(INVOKEVIRTUAL, EVENT_MANAGER, "handleListenerException", "(L" + REGISTERED_LISTENER + ";L" + EVENT + ";Ljava/lang/Throwable;)V", false);
+
+            dispatch.visitLabel(next);
+        }
+        dispatch.visitInsn(RETURN);
+        dispatch.visitMaxs(0, 0);
+        dispatch.visitEnd();
+        writer.visitEnd();
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(writer.toByteArray(), List.copyOf(classData.values), true);
+        return lookup.lookupClass().asSubclass(EventDispatcher.class).getDeclaredConstructor().newInstance();
+    }
+
+    private static final class ClassData {
+
+        private final List<Object> values = new ArrayList<>();
+        private final Map<Object, Integer> indices = new IdentityHashMap<>();
+
+        void load(final MethodVisitor method, final Object value, final Class<?> type) {
+            final int index = this.indices.computeIfAbsent(value, v -> {
+                this.values.add(v);
+                return this.values.size() - 1;
+            });
+            method.visitLdcInsn(new ConstantDynamic(ConstantDescs.DEFAULT_NAME, Type.getDescriptor(type), CLASS_DATA_AT, index));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.papermc.paper.plugin.manager;
+
+import com.mojang.logging.LogUtils;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Keeps an {@link EventDispatcher} per handler list, matching its currently baked listeners.
+ * <p>
+ * Any registration change makes the handler list bake a new listener array, the dispatcher of the previous array is
+ * then replaced on the next call, or dropped by {@link #prune()} once a plugin is disabled. A new dispatcher calls each listener in turn until it has been used
+ * {@link #COMPILE_THRESHOLD} times, after which it is compiled by {@link EventDispatcherCompiler}. This keeps handler
+ * lists of plugins that register listeners on the fly, or events that are rarely called, from generating classes.
+ */
+final class EventDispatchers {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    static final int COMPILE_THRESHOLD = 256;
+
+    private final PaperEventManager eventManager;
+    private final Map<HandlerList, Baked> dispatchers = new ConcurrentHashMap<>();
+
+    EventDispatchers(final PaperEventManager eventManager) {
+        this.eventManager = eventManager;
+    }
+
+    @NotNull
+    EventDispatcher get(@NotNull final HandlerList handlers, @NotNull final RegisteredListener[] listeners) {
+        Baked baked = this.dispatchers.get(handlers);
+        if (baked == null || baked.listeners != listeners) {
+            baked = new Baked(listeners);
+            this.dispatchers.put(handlers, baked);
+        }
+        return baked;
+    }
+
+    /**
+     * Drops the dispatchers of handler lists whose listeners changed since they were created. Otherwise, the listeners
+     * of a disabled plugin, and with them its class loader, stay reachable until their event is called again.
+     */
+    void prune() {
+        this.dispatchers.entrySet().removeIf(entry -> entry.getValue().listeners != entry.getKey().getRegisteredListeners());
+    }
+
+    void clear() {
+        this.dispatchers.clear();
+    }
+
+    private final class Baked implements EventDispatcher {
+
+        private final RegisteredListener[] listeners;
+        private volatile @Nullable EventDispatcher compiled;
+        private int calls; // racy, compiling is only delayed or repeated if updates are lost
+
+        private Baked(final RegisteredListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void dispatch(@NotNull final Event event) {
+            final EventDispatcher compiled = this.compiled;
+            if (compiled != null) {
+                compiled.dispatch(event);
+                return;
+            }
+            if (++this.calls == COMPILE_THRESHOLD) {
+                this.compiled = this.compile(event);
+            }
+            EventDispatchers.this.eventManager.callListeners(this.listeners, event);
+        }
+
+        private EventDispatcher compile(final Event event) {
+            if (this.listeners.length > EventDispatcherCompiler.MAX_LISTENERS) {
+                return this::callListeners;
+            }
+            try {
+                final PaperEventManager eventManager = EventDispatchers.this.eventManager;
+                return EventDispatcherCompiler.compile(eventManager, this.listeners, eventManager.getProfiler().stats(this.listeners, event));
+            } catch (final Throwable ex) {
+                LOGGER.error("Failed to compile event dispatcher for {} listeners, falling back to calling them in turn", this.listeners.length, ex);
+                return this::callListeners;
+            }
+        }
+
+        private void callListeners(final Event event) {
+            EventDispatchers.this.eventManager.callListeners(this.listeners, event);
+        }
+    }
+}
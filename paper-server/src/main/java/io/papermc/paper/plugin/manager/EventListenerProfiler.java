@@ -0,0 +1,252 @@
+package io.papermc.paper.plugin.manager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Always-on sampling profiler for event listeners, shown by {@code /paper events}.
+ * <p>
+ * Every call of a listener is counted, but only every {@link #SAMPLE_INTERVAL}th call is timed and has its allocations
+ * measured, so the cost of a listener is estimated by scaling its sampled cost to all of its calls. The first call of a
+ * listener is always sampled, so rarely called listeners still show up. Times and allocations are inclusive: events
+ * called from within a listener are accounted to it as well as to their own listeners.
+ * <p>
+ * The statistics of listeners registered through the {@link PaperEventManager} are kept on their
+ * {@link ProfiledRegisteredListener}, so they are found without a lookup and go away along with the registration. Those
+ * of listeners registered directly on a handler list are kept in a weak map. Reports only cover the listeners that are
+ * currently registered.
+ */
+public final class EventListenerProfiler {
+
+    static final int SAMPLE_INTERVAL = 64;
+    private static final com.sun.management.@Nullable ThreadMXBean THREADS = threads();
+
+    // the statistics do not reference their registration, so these are collected once it is unregistered
+    private final Map<RegisteredListener, ListenerStats> unprofiled = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile long since = System.nanoTime();
+
+    EventListenerProfiler() {
+    }
+
+    private static com.sun.management.@Nullable ThreadMXBean threads() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof final com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (final UnsupportedOperationException | SecurityException ignored) {
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean threads = THREADS;
+        return threads == null ? -1L : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Returns whether allocations of listeners are measured on this JVM.
+     */
+    public boolean measuresAllocations() {
+        return THREADS != null;
+    }
+
+    @NotNull
+    ListenerStats stats(@NotNull final RegisteredListener registration, @NotNull final Event event) {
+        if (registration instanceof final ProfiledRegisteredListener profiled) {
+            return profiled.stats;
+        }
+        // registered directly on the handler list, the event type is only known once it is called
+        return this.unprofiled.computeIfAbsent(registration, r -> new ListenerStats(r, event.getEventName()));
+    }
+
+    @NotNull
+    ListenerStats[] stats(@NotNull final RegisteredListener[] listeners, @NotNull final Event event) {
+        final ListenerStats[] stats = new ListenerStats[listeners.length];
+        for (int i = 0; i < listeners.length; ++i) {
+            stats[i] = this.stats(listeners[i], event);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of all registered listeners. Bakes every handler list, so it must not be called while
+     * events are dispatched.
+     */
+    @NotNull
+    private List<ListenerStats> registered() {
+        final Set<RegisteredListener> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<ListenerStats> stats = new ArrayList<>();
+        for (final HandlerList handlers : HandlerList.getHandlerLists()) {
+            for (final RegisteredListener registration : handlers.getRegisteredListeners()) {
+                if (!registered.add(registration)) {
+                    continue;
+                }
+                final ListenerStats listenerStats = registration instanceof final ProfiledRegisteredListener profiled
+                    ? profiled.stats
+                    : this.unprofiled.get(registration);
+                if (listenerStats != null) {
+                    stats.add(listenerStats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of all registered listeners that have been called since the last reset.
+     */
+    @NotNull
+    public List<ListenerStats> snapshot() {
+        final List<ListenerStats> snapshot = this.registered();
+        snapshot.removeIf(stats -> stats.calls() == 0L);
+        return snapshot;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the last reset.
+     */
+    public long since() {
+        return this.since;
+    }
+
+    public void reset() {
+        // compiled dispatchers hold on to the statistics of their listeners, so these are reset in place
+        for (final ListenerStats stats : this.registered()) {
+            stats.reset();
+        }
+        this.since = System.nanoTime();
+    }
+
+    void clear() {
+        this.unprofiled.clear();
+        this.since = System.nanoTime();
+    }
+
+    public static final class ListenerStats {
+
+        private final String pluginName;
+        private final String listenerName;
+        private final String eventName;
+        private final EventPriority priority;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder sampledCalls = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder sampledBytes = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private int counter = SAMPLE_INTERVAL - 1; // racy, a lost update only shifts the next sample
+
+        ListenerStats(@NotNull final RegisteredListener registration, @NotNull final String eventName) {
+            this.pluginName = registration.getPlugin().getName();
+            this.listenerName = registration.getListener().getClass().getName();
+            this.eventName = eventName;
+            this.priority = registration.getPriority();
+        }
+
+        /**
+         * Counts a call of the listener.
+         *
+         * @return {@code true} if the call should be made through {@link #callSampled}
+         */
+        boolean sample() {
+            this.calls.increment();
+            if (++this.counter >= SAMPLE_INTERVAL) {
+                this.counter = 0;
+                return true;
+            }
+            return false;
+        }
+
+        void callSampled(@NotNull final RegisteredListener registration, @NotNull final Event event) throws EventException {
+            final long bytes = allocatedBytes();
+            final long start = System.nanoTime();
+            try {
+                registration.callEvent(event);
+            } finally {
+                final long nanos = System.nanoTime() - start;
+                if (bytes != -1L) {
+                    this.sampledBytes.add(allocatedBytes() - bytes);
+                }
+                this.sampledNanos.add(nanos);
+                this.maxNanos.accumulate(nanos);
+                this.sampledCalls.increment();
+            }
+        }
+
+        private void reset() {
+            this.calls.reset();
+            this.sampledCalls.reset();
+            this.sampledNanos.reset();
+            this.sampledBytes.reset();
+            this.maxNanos.reset();
+            this.counter = SAMPLE_INTERVAL - 1;
+        }
+
+        @NotNull
+        public String pluginName() {
+            return this.pluginName;
+        }
+
+        @NotNull
+        public String listenerName() {
+            return this.listenerName;
+        }
+
+        @NotNull
+        public String eventName() {
+            return this.eventName;
+        }
+
+        @NotNull
+        public EventPriority priority() {
+            return this.priority;
+        }
+
+        public long calls() {
+            return this.calls.sum();
+        }
+
+        public long sampledCalls() {
+            return this.sampledCalls.sum();
+        }
+
+        public long maxNanos() {
+            return this.maxNanos.get();
+        }
+
+        /**
+         * Returns the estimated time spent in all calls, the sampled time scaled to the number of calls.
+         */
+        public long estimatedNanos() {
+            return this.estimate(this.sampledNanos.sum());
+        }
+
+        /**
+         * Returns the estimated bytes allocated by all calls, or {@code 0} if allocations are not measured.
+         */
+        public long estimatedBytes() {
+            return this.estimate(this.sampledBytes.sum());
+        }
+
+        private long estimate(final long sampled) {
+            final long sampledCalls = this.sampledCalls.sum();
+            return sampledCalls == 0L ? 0L : (long) ((double) sampled * this.calls.sum() / sampledCalls);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import co.aikar.timings.TimedEventExecutor;
 import com.destroystokyo.paper.event.server.ServerExceptionEvent;
 import com.destroystokyo.paper.exception.ServerEventException;
 import com.google.common.collect.Sets;
+import io.papermc.paper.configuration.GlobalConfiguration;
 import org.bukkit.Server;
 import org.bukkit.Warning;
 import org.bukkit.event.Event;
@@ -29,6 +30,8 @@ import java.util.logging.Level;
 class PaperEventManager {
 
     private final Server server;
+    private final EventListenerProfiler profiler = new EventListenerProfiler();
+    private final EventDispatchers dispatchers = new EventDispatchers(this);
 
     public PaperEventManager(Server server) {
         this.server = server;
@@ -45,36 +48,57 @@ class PaperEventManager {
         HandlerList handlers = event.getHandlers();
         RegisteredListener[] listeners = handlers.getRegisteredListeners();
 
+        final GlobalConfiguration config = GlobalConfiguration.get();
+        if (config != null && config.misc.compileEventDispatch) {
+            this.dispatchers.get(handlers, listeners).dispatch(event);
+            return;
+        }
+        this.callListeners(listeners, event);
+    }
+
+    void callListeners(@NotNull RegisteredListener[] listeners, @NotNull Event event) {
         for (RegisteredListener registration : listeners) {
             if (!registration.getPlugin().isEnabled()) {
                 continue;
             }
 
             try {
-                registration.callEvent(event);
-            } catch (AuthorNagException ex) {
-                Plugin plugin = registration.getPlugin();
-
-                if (plugin.isNaggable()) {
-                    plugin.setNaggable(false);
-
-                    this.server.getLogger().log(Level.SEVERE, String.format(
-                        "Nag author(s): '%s' of '%s' about the following: %s",
-                        plugin.getPluginMeta().getAuthors(),
-                        plugin.getPluginMeta().getDisplayName(),
-                        ex.getMessage()
-                    ));
+                final EventListenerProfiler.ListenerStats stats = this.profiler.stats(registration, event);
+                if (stats.sample()) {
+                    stats.callSampled(registration, event);
+                } else {
+                    registration.callEvent(event);
                 }
             } catch (Throwable ex) {
-                String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
-                this.server.getLogger().log(Level.SEVERE, msg, ex);
-                if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
-                    this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
-                }
+                this.handleListenerException(registration, event, ex);
             }
         }
     }
 
+    void handleListenerException(@NotNull RegisteredListener registration, @NotNull Event event, @NotNull Throwable ex) {
+        if (ex instanceof AuthorNagException) {
+            Plugin plugin = registration.getPlugin();
+
+            if (plugin.isNaggable()) {
+                plugin.setNaggable(false);
+
+                this.server.getLogger().log(Level.SEVERE, String.format(
+                    "Nag author(s): '%s' of '%s' about the following: %s",
+                    plugin.getPluginMeta().getAuthors(),
+                    plugin.getPluginMeta().getDisplayName(),
+                    ex.getMessage()
+                ));
+            }
+            return;
+        }
+
+        String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
+        this.server.getLogger().log(Level.SEVERE, msg, ex);
+        if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
+            this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
+        }
+    }
+
     public void registerEvents(@NotNull Listener listener, @NotNull Plugin plugin) {
         if (!plugin.isEnabled()) {
             throw new IllegalPluginAccessException("Plugin attempted to register " + listener + " while not enabled");
@@ -96,7 +120,8 @@ class PaperEventManager {
         }
 
         executor = new TimedEventExecutor(executor, plugin, null, event);
-        this.getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
+        RegisteredListener registration = new ProfiledRegisteredListener(listener, executor, priority, plugin, ignoreCancelled, event);
+        this.getEventListeners(event).register(registration);
     }
 
     @NotNull
@@ -183,12 +208,23 @@ class PaperEventManager {
             }
 
             EventExecutor executor = new TimedEventExecutor(EventExecutor.create(method, eventClass), plugin, method, eventClass);
-            eventSet.add(new RegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled()));
+            eventSet.add(new ProfiledRegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled(), eventClass));
         }
         return ret;
     }
 
+    public void pruneDispatchers() {
+        this.dispatchers.prune();
+    }
+
     public void clearEvents() {
         HandlerList.unregisterAll();
+        this.dispatchers.clear();
+        this.profiler.clear();
+    }
+
+    @NotNull
+    EventListenerProfiler getProfiler() {
+        return this.profiler;
     }
 }
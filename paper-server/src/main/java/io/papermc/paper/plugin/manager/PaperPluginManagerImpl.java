@@ -51,6 +51,10 @@ public class PaperPluginManagerImpl implements PluginManager, DependencyContext
         return ((CraftServer) (Bukkit.getServer())).paperPluginManager;
     }
 
+    public EventListenerProfiler getEventListenerProfiler() {
+        return this.paperEventManager.getProfiler();
+    }
+
     // Plugin Manipulation
 
     @Override
@@ -95,6 +99,7 @@ public class PaperPluginManagerImpl implements PluginManager, DependencyContext
     @Override
     public void disablePlugins() {
         this.instanceManager.disablePlugins();
+        this.paperEventManager.pruneDispatchers();
     }
 
     @Override
@@ -112,6 +117,7 @@ public class PaperPluginManagerImpl implements PluginManager, DependencyContext
     @Override
     public void disablePlugin(@NotNull Plugin plugin) {
         this.instanceManager.disablePlugin(plugin);
+        this.paperEventManager.pruneDispatchers();
     }
 
     @Override
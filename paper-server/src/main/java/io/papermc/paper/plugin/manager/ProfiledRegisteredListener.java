@@ -0,0 +1,23 @@
+package io.papermc.paper.plugin.manager;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A listener registered through the {@link PaperEventManager}, carrying its {@link EventListenerProfiler} statistics
+ * so these are found without a lookup.
+ */
+final class ProfiledRegisteredListener extends RegisteredListener {
+
+    final EventListenerProfiler.ListenerStats stats;
+
+    ProfiledRegisteredListener(@NotNull final Listener listener, @NotNull final EventExecutor executor, @NotNull final EventPriority priority, @NotNull final Plugin plugin, final boolean ignoreCancelled, @NotNull final Class<? extends Event> event) {
+        super(listener, executor, priority, plugin, ignoreCancelled);
+        this.stats = new EventListenerProfiler.ListenerStats(this, event.getSimpleName());
+    }
+}
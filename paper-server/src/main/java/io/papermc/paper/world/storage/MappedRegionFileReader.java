@@ -0,0 +1,95 @@
+package io.papermc.paper.world.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Serves region file sector reads from read-only memory mappings of the file instead of one read syscall per chunk.
+ * <p>
+ * The file is mapped in fixed size segments, each mapped once the file has grown past its end, so appending to the
+ * file never maps it again. Reads crossing a segment boundary, or reaching into the last, partial segment, are not
+ * served from a mapping. Writes still go through the file channel, they are visible through the mappings as both share
+ * the page cache.
+ * <p>
+ * Reads are copied into heap buffers before the region file lock is released: callers may decompress them later
+ * without the lock, while the sectors they were read from are freed and rewritten for other chunks. The mappings are
+ * never unmapped explicitly, they are released by the GC once the region file is closed.
+ * <p>
+ * Not thread safe, callers must hold the region file lock.
+ */
+@NullMarked
+public final class MappedRegionFileReader {
+
+    static final int SEGMENT_SHIFT = 20;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private @Nullable MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private boolean closed;
+
+    public MappedRegionFileReader(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads {@code length} bytes at {@code offset}. Mirrors {@link FileChannel#read(ByteBuffer, long)} into a fresh
+     * buffer: the returned buffer has its position after the last byte read, and fewer bytes are returned if the file
+     * ends before {@code offset + length}.
+     *
+     * @param offset file offset
+     * @param length maximum number of bytes to read
+     * @return a heap buffer holding the bytes, or {@code null} if the read cannot be served from a mapping
+     */
+    public @Nullable ByteBuffer read(final long offset, final int length) throws IOException {
+        if (this.closed || length <= 0) {
+            return null;
+        }
+        final long size = this.channel.size();
+        final int available = (int) Math.max(0L, Math.min((long) length, size - offset));
+        if (available == 0) {
+            return null;
+        }
+        final long segmentIndex = offset >>> SEGMENT_SHIFT;
+        if (((offset + available - 1) >>> SEGMENT_SHIFT) != segmentIndex || segmentIndex >= size >>> SEGMENT_SHIFT) {
+            return null;
+        }
+
+        final MappedByteBuffer segment = this.segment((int) segmentIndex);
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(0, segment, (int) (offset & (SEGMENT_SIZE - 1)), available);
+        buffer.position(available);
+        RegionFileMetrics.onMappedRead(available);
+        return buffer;
+    }
+
+    private MappedByteBuffer segment(final int index) throws IOException {
+        if (index >= this.segments.length) {
+            this.segments = Arrays.copyOf(this.segments, Math.max(index + 1, this.segments.length * 2));
+        }
+        MappedByteBuffer segment = this.segments[index];
+        if (segment == null) {
+            segment = this.channel.map(FileChannel.MapMode.READ_ONLY, (long) index << SEGMENT_SHIFT, SEGMENT_SIZE);
+            this.segments[index] = segment;
+            RegionFileMetrics.onMap(SEGMENT_SIZE);
+        }
+        return segment;
+    }
+
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        for (final @Nullable MappedByteBuffer segment : this.segments) {
+            if (segment != null) {
+                RegionFileMetrics.onMap(-segment.capacity());
+            }
+        }
+        this.segments = new MappedByteBuffer[0];
+    }
+}
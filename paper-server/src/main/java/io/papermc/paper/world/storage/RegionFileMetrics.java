@@ -0,0 +1,146 @@
+package io.papermc.paper.world.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Counters for region file I/O, shown by {@code /paper regionio}.
+ */
+@NullMarked
+public final class RegionFileMetrics {
+
+    private static final Path PROC_SELF_STAT = Path.of("/proc/self/stat");
+
+    private static final LongAdder MAPPED_BYTES = new LongAdder();
+    private static final LongAdder MAPPED_READS = new LongAdder();
+    private static final LongAdder MAPPED_READ_BYTES = new LongAdder();
+    private static final LongAdder HEAP_READS = new LongAdder();
+    private static final LongAdder HEAP_READ_BYTES = new LongAdder();
+    private static final LongAdder WRITE_BATCHES = new LongAdder();
+    private static final LongAdder BATCHED_WRITES = new LongAdder();
+    private static final LongAdder COALESCED_WRITES = new LongAdder();
+    private static final LongAdder COALESCED_WRITE_BYTES = new LongAdder();
+    private static final LongAdder WRITE_BATCH_NANOS = new LongAdder();
+    private static final LongAccumulator MAX_WRITE_BATCH_NANOS = new LongAccumulator(Math::max, 0L);
+    private static final LongAdder SYNCS = new LongAdder();
+    private static final LongAdder DELAYED_SYNCS = new LongAdder();
+
+    private RegionFileMetrics() {
+    }
+
+    static void onMap(final long bytes) {
+        MAPPED_BYTES.add(bytes);
+    }
+
+    static void onMappedRead(final int bytes) {
+        MAPPED_READS.increment();
+        MAPPED_READ_BYTES.add(bytes);
+    }
+
+    public static void onHeapRead(final int bytes) {
+        HEAP_READS.increment();
+        HEAP_READ_BYTES.add(bytes);
+    }
+
+    static void onWriteBatch(final int writes, final long nanos) {
+        WRITE_BATCHES.increment();
+        BATCHED_WRITES.add(writes);
+        WRITE_BATCH_NANOS.add(nanos);
+        MAX_WRITE_BATCH_NANOS.accumulate(nanos);
+    }
+
+    public static void onCoalescedWrite(final int chunks, final long bytes) {
+        COALESCED_WRITES.add(chunks);
+        COALESCED_WRITE_BYTES.add(bytes);
+    }
+
+    public static void onSync(final boolean delayed) {
+        SYNCS.increment();
+        if (delayed) {
+            DELAYED_SYNCS.increment();
+        }
+    }
+
+    public static long mappedBytes() {
+        return MAPPED_BYTES.sum();
+    }
+
+    public static long mappedReads() {
+        return MAPPED_READS.sum();
+    }
+
+    public static long mappedReadBytes() {
+        return MAPPED_READ_BYTES.sum();
+    }
+
+    public static long heapReads() {
+        return HEAP_READS.sum();
+    }
+
+    public static long heapReadBytes() {
+        return HEAP_READ_BYTES.sum();
+    }
+
+    public static long writeBatches() {
+        return WRITE_BATCHES.sum();
+    }
+
+    public static long batchedWrites() {
+        return BATCHED_WRITES.sum();
+    }
+
+    public static long coalescedWrites() {
+        return COALESCED_WRITES.sum();
+    }
+
+    public static long coalescedWriteBytes() {
+        return COALESCED_WRITE_BYTES.sum();
+    }
+
+    public static long writeBatchNanos() {
+        return WRITE_BATCH_NANOS.sum();
+    }
+
+    public static long maxWriteBatchNanos() {
+        return MAX_WRITE_BATCH_NANOS.get();
+    }
+
+    public static long syncs() {
+        return SYNCS.sum();
+    }
+
+    /**
+     * Returns the number of syncs which waited for the configured group window to pass since the last sync of their
+     * region file.
+     */
+    public static long delayedSyncs() {
+        return DELAYED_SYNCS.sum();
+    }
+
+    /**
+     * Returns the minor and major page faults of the whole process, as reported by {@code /proc/self/stat}.
+     * Faults on mapped region files are part of these, but cannot be told apart from other faults.
+     *
+     * @return {@code [minor, major]}, or {@code null} if not available on this platform
+     */
+    public static long @Nullable [] processPageFaults() {
+        if (!Files.isReadable(PROC_SELF_STAT)) {
+            return null;
+        }
+        try {
+            final String stat = Files.readString(PROC_SELF_STAT, StandardCharsets.US_ASCII);
+            // the command name may contain spaces, fields are counted from the closing parenthesis
+            final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // fields after the name start at index 3 (state), minflt is field 10 and majflt field 12
+            return new long[] {Long.parseLong(fields[10 - 3]), Long.parseLong(fields[12 - 3])};
+        } catch (final IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.mojang.logging.LogUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import joptsimple.OptionSet;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Offline conversion of region files between compression formats.
+ * <p>
+ * Chunk payloads are only decompressed and recompressed, never parsed, so this is much faster than a forced world
+ * upgrade with {@code --recreateRegionFiles}. Must not be run while a server is using the worlds.
+ */
+@NullMarked
+public final class RegionRecompressor {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    private static final Set<String> REGION_FOLDERS = Set.of("region", "entities", "poi");
+    private static final Pattern REGION_FILE_NAME = Pattern.compile("^r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+    private static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = SECTOR_BYTES * 2;
+    private static final int CHUNKS_PER_REGION = 32 * 32;
+    private static final int MAX_INLINE_SECTORS = 255;
+    private static final int EXTERNAL_STREAM_FLAG = 128;
+    private static final String TEMP_SUFFIX = ".recompress";
+
+    private static final int DICTIONARY_SIZE = 112 * 1024;
+    private static final int DICTIONARY_SAMPLE_BYTES = 64 * 1024 * 1024;
+    private static final int DICTIONARY_MAX_SAMPLE_FILES = 64;
+
+    private final RegionFileVersion target;
+    private final int level;
+    private final boolean trainDictionaries;
+
+    private long chunksConverted;
+    private long bytesBefore;
+    private long bytesAfter;
+
+    private RegionRecompressor(final RegionFileVersion target, final int level, final boolean trainDictionaries) {
+        this.target = target;
+        this.level = level;
+        this.trainDictionaries = trainDictionaries;
+    }
+
+    public static void run(final OptionSet options) {
+        final String formatName = ((String) options.valueOf("recompressRegions")).toLowerCase(Locale.ROOT);
+        final RegionFileVersion target = switch (formatName) {
+            case "gzip" -> RegionFileVersion.VERSION_GZIP;
+            case "zlib", "deflate" -> RegionFileVersion.VERSION_DEFLATE;
+            case "lz4" -> RegionFileVersion.VERSION_LZ4;
+            case "zstd" -> RegionFileVersion.VERSION_ZSTD;
+            case "none" -> RegionFileVersion.VERSION_NONE;
+            default -> null;
+        };
+        if (target == null) {
+            LOGGER.error("Unknown region compression format '{}', expected one of gzip, zlib, lz4, zstd, none", formatName);
+            return;
+        }
+        final int level = (Integer) options.valueOf("zstdCompressionLevel");
+        final boolean train = options.has("trainZstdDictionary");
+        if (train && target != RegionFileVersion.VERSION_ZSTD) {
+            LOGGER.warn("--trainZstdDictionary is ignored when not recompressing to zstd");
+        }
+
+        final Path container = ((File) options.valueOf("universe")).toPath();
+        final RegionRecompressor recompressor = new RegionRecompressor(target, level, train && target == RegionFileVersion.VERSION_ZSTD);
+        try {
+            recompressor.recompressAll(container);
+        } catch (final IOException ex) {
+            LOGGER.error("Failed to recompress region files in {}", container.toAbsolutePath(), ex);
+        }
+    }
+
+    private void recompressAll(final Path container) throws IOException {
+        final List<Path> folders;
+        try (final Stream<Path> stream = Files.walk(container)) {
+            folders = stream.filter(Files::isDirectory)
+                .filter(path -> REGION_FOLDERS.contains(path.getFileName().toString()))
+                .toList();
+        }
+
+        LOGGER.info("Recompressing region files in {} folders under {} to {}", folders.size(), container.toAbsolutePath(), this.target);
+        final long start = System.nanoTime();
+        for (final Path folder : folders) {
+            this.recompressFolder(folder);
+        }
+        LOGGER.info(
+            "Recompressed {} chunks in {}s, {} -> {} bytes",
+            this.chunksConverted, (System.nanoTime() - start) / 1_000_000_000L, this.bytesBefore, this.bytesAfter
+        );
+    }
+
+    private void recompressFolder(final Path folder) throws IOException {
+        final List<Path> regionFiles;
+        try (final Stream<Path> stream = Files.list(folder)) {
+            regionFiles = stream.filter(path -> REGION_FILE_NAME.matcher(path.getFileName().toString()).matches()).sorted().toList();
+        }
+        if (regionFiles.isEmpty()) {
+            return;
+        }
+
+        @Nullable ZstdRegionCompression.Dictionary dictionary = null;
+        if (this.target == RegionFileVersion.VERSION_ZSTD) {
+            // existing dictionaries are needed to read chunks that were already compressed with them
+            dictionary = ZstdRegionCompression.dictionaryFor(regionFiles.getFirst());
+            if (this.trainDictionaries) {
+                final ZstdRegionCompression.Dictionary trained = this.trainDictionary(folder, regionFiles);
+                if (trained != null) {
+                    dictionary = trained;
+                }
+            }
+        }
+
+        LOGGER.info("Recompressing {} region files in {}", regionFiles.size(), folder.toAbsolutePath());
+        for (final Path regionFile : regionFiles) {
+            try {
+                this.recompressRegion(regionFile, dictionary);
+            } catch (final IOException ex) {
+                LOGGER.error("Failed to recompress region file {}, leaving it untouched", regionFile.toAbsolutePath(), ex);
+            }
+        }
+    }
+
+    private ZstdRegionCompression.@Nullable Dictionary trainDictionary(final Path folder, final List<Path> regionFiles) throws IOException {
+        final ZstdDictTrainer trainer = new ZstdDictTrainer(DICTIONARY_SAMPLE_BYTES, DICTIONARY_SIZE);
+        final int step = Math.max(1, regionFiles.size() / DICTIONARY_MAX_SAMPLE_FILES);
+        int samples = 0;
+        sampling:
+        for (int i = 0; i < regionFiles.size(); i += step) {
+            final Path regionFile = regionFiles.get(i);
+            final byte[][] chunks = this.readChunks(regionFile);
+            for (final byte[] chunk : chunks) {
+                if (chunk == null) {
+                    continue;
+                }
+                if (!trainer.addSample(this.decompress(regionFile, chunk))) {
+                    break sampling;
+                }
+                ++samples;
+            }
+        }
+        if (samples < 16) {
+            LOGGER.info("Not enough chunks in {} to train a zstd dictionary", folder.toAbsolutePath());
+            return null;
+        }
+
+        final ZstdRegionCompression.Dictionary dictionary = ZstdRegionCompression.Dictionary.of(trainer.trainSamples());
+        final Path dictionaryFile = folder.resolve(ZstdRegionCompression.DICTIONARY_FILE_NAME);
+        if (Files.exists(dictionaryFile)) {
+            // chunks in other folders or backups may still reference the old dictionary
+            Files.move(dictionaryFile, folder.resolve(ZstdRegionCompression.DICTIONARY_FILE_NAME + "." + System.currentTimeMillis() + ".old"));
+        }
+        Files.write(dictionaryFile, dictionary.bytes());
+        ZstdRegionCompression.useDictionary(folder, dictionary);
+        LOGGER.info("Trained zstd dictionary {} for {} from {} chunks", Long.toUnsignedString(dictionary.id()), folder.toAbsolutePath(), samples);
+        return dictionary;
+    }
+
+    /**
+     * Reads the raw stored payload of every chunk in the region file: the compression version byte followed by the
+     * compressed data. Chunks stored in external {@code .mcc} files have their data inlined here, with the version
+     * byte flag cleared.
+     */
+    private byte[][] readChunks(final Path regionFile) throws IOException {
+        final byte[][] chunks = new byte[CHUNKS_PER_REGION][];
+        try (final FileChannel channel = FileChannel.open(regionFile, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                return chunks;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES);
+            channel.read(header, 0L);
+            header.flip();
+
+            for (int index = 0; index < CHUNKS_PER_REGION; ++index) {
+                final int location = header.getInt(index * 4);
+                if (location == 0) {
+                    continue;
+                }
+                final long offset = (long) (location >>> 8) * SECTOR_BYTES;
+                if (offset < HEADER_BYTES || offset + 5L > fileSize) {
+                    LOGGER.warn("Skipping chunk {} with invalid location in {}", index, regionFile.toAbsolutePath());
+                    continue;
+                }
+                final ByteBuffer lengthBuffer = ByteBuffer.allocate(5);
+                channel.read(lengthBuffer, offset);
+                final int length = lengthBuffer.getInt(0);
+                final byte version = lengthBuffer.get(4);
+                if ((version & EXTERNAL_STREAM_FLAG) != 0) {
+                    final Path external = this.externalChunkFile(regionFile, index);
+                    final byte[] data = Files.readAllBytes(external);
+                    final byte[] chunk = new byte[data.length + 1];
+                    chunk[0] = (byte) (version & ~EXTERNAL_STREAM_FLAG);
+                    System.arraycopy(data, 0, chunk, 1, data.length);
+                    chunks[index] = chunk;
+                    continue;
+                }
+                if (length <= 0 || offset + 4L + length > fileSize) {
+                    LOGGER.warn("Skipping chunk {} with invalid length in {}", index, regionFile.toAbsolutePath());
+                    continue;
+                }
+                final ByteBuffer data = ByteBuffer.allocate(length);
+                channel.read(data, offset + 4L);
+                chunks[index] = data.array();
+            }
+        }
+        return chunks;
+    }
+
+    private byte[] decompress(final Path regionFile, final byte[] chunk) throws IOException {
+        final RegionFileVersion source = RegionFileVersion.fromId(chunk[0]);
+        if (source == null) {
+            throw new IOException("Unknown compression version " + chunk[0] + " in " + regionFile.toAbsolutePath());
+        }
+        try (final InputStream input = source.wrap(new ByteArrayInputStream(chunk, 1, chunk.length - 1))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private byte[] compress(final byte[] data, final ZstdRegionCompression.@Nullable Dictionary dictionary) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(32, data.length / 4));
+        bytes.write(this.target.getId());
+        try (final OutputStream output = this.target == RegionFileVersion.VERSION_ZSTD
+            ? ZstdRegionCompression.wrapOutput(bytes, dictionary, this.level)
+            : this.target.wrap(bytes)) {
+            output.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void recompressRegion(final Path regionFile, final ZstdRegionCompression.@Nullable Dictionary dictionary) throws IOException {
+        final byte[][] chunks = this.readChunks(regionFile);
+        final ByteBuffer timestamps = ByteBuffer.allocate(SECTOR_BYTES);
+        try (final FileChannel channel = FileChannel.open(regionFile, StandardOpenOption.READ)) {
+            channel.read(timestamps, SECTOR_BYTES);
+        }
+
+        final List<Path> externalDeletes = new ArrayList<>();
+        // external chunk files are written next to their final location and only moved there once the region file
+        // referencing them replaced the old one, so a failure before that leaves the old region and its files intact
+        final List<Path> externalWrites = new ArrayList<>();
+        final Path temp = regionFile.resolveSibling(regionFile.getFileName() + TEMP_SUFFIX);
+        try {
+            try (final FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                final ByteBuffer locations = ByteBuffer.allocate(SECTOR_BYTES);
+                int nextSector = 2;
+                for (int index = 0; index < CHUNKS_PER_REGION; ++index) {
+                    final byte[] chunk = chunks[index];
+                    if (chunk == null) {
+                        continue;
+                    }
+                    final byte[] compressed = this.compress(this.decompress(regionFile, chunk), dictionary);
+                    this.bytesBefore += chunk.length;
+                    this.bytesAfter += compressed.length;
+                    ++this.chunksConverted;
+
+                    final Path external = this.externalChunkFile(regionFile, index);
+                    final ByteBuffer stored;
+                    if (sectorsFor(compressed.length + 4) > MAX_INLINE_SECTORS) {
+                        final Path externalTemp = external.resolveSibling(external.getFileName() + TEMP_SUFFIX);
+                        externalWrites.add(external);
+                        try (final FileChannel externalOut = FileChannel.open(externalTemp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                            externalOut.write(ByteBuffer.wrap(compressed, 1, compressed.length - 1));
+                            externalOut.force(true);
+                        }
+                        stored = ByteBuffer.allocate(5);
+                        stored.putInt(1).put((byte) (compressed[0] | EXTERNAL_STREAM_FLAG));
+                    } else {
+                        if (Files.exists(external)) {
+                            externalDeletes.add(external);
+                        }
+                        stored = ByteBuffer.allocate(compressed.length + 4);
+                        stored.putInt(compressed.length).put(compressed);
+                    }
+                    stored.flip();
+                    final int sectors = sectorsFor(stored.remaining());
+                    out.write(stored, (long) nextSector * SECTOR_BYTES);
+                    locations.putInt(index * 4, (nextSector << 8) | sectors);
+                    nextSector += sectors;
+                }
+
+                // pad to a whole number of sectors, as vanilla expects
+                final long size = (long) nextSector * SECTOR_BYTES;
+                if (out.size() < size) {
+                    out.write(ByteBuffer.allocate(1), size - 1L);
+                }
+                out.write(locations.clear(), 0L);
+                out.write(timestamps.clear(), SECTOR_BYTES);
+                out.force(true);
+            }
+            Files.move(temp, regionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException ex) {
+            deleteQuietly(temp);
+            for (final Path external : externalWrites) {
+                deleteQuietly(external.resolveSibling(external.getFileName() + TEMP_SUFFIX));
+            }
+            throw ex;
+        }
+
+        // the region file was replaced, so from here on failures must not be reported as leaving it untouched
+        for (final Path external : externalWrites) {
+            final Path externalTemp = external.resolveSibling(external.getFileName() + TEMP_SUFFIX);
+            try {
+                Files.move(externalTemp, external, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException ex) {
+                LOGGER.error(
+                    "Replaced region file {}, but failed to move external chunk file {} into place. Its chunk is unreadable until {} is renamed to {}",
+                    regionFile.toAbsolutePath(), external.toAbsolutePath(), externalTemp.getFileName(), external.getFileName(), ex
+                );
+            }
+        }
+        for (final Path external : externalDeletes) {
+            try {
+                Files.deleteIfExists(external);
+            } catch (final IOException ex) {
+                LOGGER.warn("Failed to delete external chunk file {}", external.toAbsolutePath(), ex);
+            }
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException ex) {
+            LOGGER.warn("Failed to delete temporary file {}", path.toAbsolutePath(), ex);
+        }
+    }
+
+    private Path externalChunkFile(final Path regionFile, final int index) throws IOException {
+        final Matcher matcher = REGION_FILE_NAME.matcher(regionFile.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IOException("Not a region file: " + regionFile.toAbsolutePath());
+        }
+        final int chunkX = (Integer.parseInt(matcher.group(1)) << 5) | (index & 31);
+        final int chunkZ = (Integer.parseInt(matcher.group(2)) << 5) | (index >>> 5);
+        return regionFile.resolveSibling("c." + chunkX + "." + chunkZ + ".mcc");
+    }
+
+    private static int sectorsFor(final int bytes) {
+        return (bytes + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+}
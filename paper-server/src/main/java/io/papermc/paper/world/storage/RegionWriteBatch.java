@@ -0,0 +1,117 @@
+package io.papermc.paper.world.storage;
+
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.booleans.BooleanConsumer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Groups the chunk writes of consecutive I/O tasks for one region file.
+ * <p>
+ * While a batch is active on the current thread, chunk writes are staged in their region file instead of being
+ * written one by one. {@link #finish()} lays all staged chunks out in one contiguous sector run if a free run fits them,
+ * updates the header once and syncs the file at most once, waiting for the sync group window to pass since the last
+ * sync of the file. The write tasks are only completed afterwards, so a failed flush is retried like any other failed
+ * write and reads keep being served from the in-progress write until the data is on disk.
+ */
+@NullMarked
+public final class RegionWriteBatch {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final ThreadLocal<@Nullable RegionWriteBatch> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final List<RegionFile> staged = new ArrayList<>(1);
+    private final List<RegionFile> sync = new ArrayList<>(1);
+    private final List<BooleanConsumer> completions = new ArrayList<>();
+
+    private RegionWriteBatch() {
+    }
+
+    /**
+     * Returns the maximum number of queued I/O tasks of one region file to run in a single batch.
+     */
+    public static int maxTasks() {
+        final GlobalConfiguration config = GlobalConfiguration.get();
+        return config == null ? 1 : config.chunkSystem.regionWriteBatchSize;
+    }
+
+    public static RegionWriteBatch begin() {
+        final RegionWriteBatch batch = new RegionWriteBatch();
+        CURRENT.set(batch);
+        return batch;
+    }
+
+    public static @Nullable RegionWriteBatch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stages a chunk write in the batch.
+     *
+     * @return {@code false} if the chunk must be written directly instead
+     */
+    public boolean stage(final RegionFile regionFile, final ChunkPos pos, final ByteBuffer data) {
+        if (!regionFile.stageWrite(pos, data)) {
+            return false;
+        }
+        if (!this.staged.contains(regionFile)) {
+            this.staged.add(regionFile);
+        }
+        return true;
+    }
+
+    /**
+     * Defers the completion of a write task until the batch is flushed.
+     *
+     * @param sync region file to sync after flushing, or {@code null}
+     * @param completion called with {@code true} if flushing the batch failed
+     */
+    public void onFinish(final @Nullable RegionFile sync, final BooleanConsumer completion) {
+        if (sync != null && !this.sync.contains(sync)) {
+            this.sync.add(sync);
+        }
+        this.completions.add(completion);
+    }
+
+    public void finish() {
+        CURRENT.remove();
+
+        boolean failed = false;
+        for (final RegionFile regionFile : this.staged) {
+            try {
+                regionFile.flushPendingWrites();
+            } catch (final IOException ex) {
+                LOGGER.error("Failed to write coalesced chunks to region file {}", regionFile.getPath(), ex);
+                failed = true;
+            }
+        }
+        if (!this.sync.isEmpty()) {
+            final long window = TimeUnit.MILLISECONDS.toNanos(GlobalConfiguration.get().chunkSystem.regionSyncGroupWindow);
+            for (final RegionFile regionFile : this.sync) {
+                try {
+                    regionFile.syncGrouped(window);
+                } catch (final IOException ex) {
+                    LOGGER.error("Failed to sync region file {}", regionFile.getPath(), ex);
+                    failed = true;
+                }
+            }
+        }
+
+        if (!this.completions.isEmpty()) {
+            RegionFileMetrics.onWriteBatch(this.completions.size(), System.nanoTime() - this.start);
+        }
+        for (final BooleanConsumer completion : this.completions) {
+            completion.accept(failed);
+        }
+    }
+}
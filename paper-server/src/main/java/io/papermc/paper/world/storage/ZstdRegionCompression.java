@@ -0,0 +1,175 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Zstandard support for region files.
+ * <p>
+ * Every region folder ({@code region}, {@code entities}, {@code poi}) may contain a trained dictionary in
+ * {@value #DICTIONARY_FILE_NAME}. Chunks written to region files in that folder are compressed with it, and the
+ * dictionary id stored in each frame header is used to find the matching dictionary again when reading, so the read
+ * path does not need to know which world a chunk belongs to.
+ */
+@NullMarked
+public final class ZstdRegionCompression {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+
+    public static final String DICTIONARY_FILE_NAME = "paper-zstd.dict";
+    public static final int DEFAULT_LEVEL = 3;
+    // magic (4) + frame header descriptor (1) + window descriptor (1) + dictionary id (4) + frame content size (8)
+    private static final int MAX_FRAME_HEADER_SIZE = 18;
+
+    private static final ConcurrentHashMap<Long, ZstdDictDecompress> DECOMPRESS_DICTIONARIES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Path, Optional<Dictionary>> DICTIONARIES_BY_FOLDER = new ConcurrentHashMap<>();
+
+    private ZstdRegionCompression() {
+    }
+
+    public static int compressionLevel() {
+        final GlobalConfiguration config = GlobalConfiguration.get();
+        return config == null ? DEFAULT_LEVEL : config.unsupportedSettings.zstd.compressionLevel;
+    }
+
+    private static boolean useDictionaries() {
+        final GlobalConfiguration config = GlobalConfiguration.get();
+        return config == null || config.unsupportedSettings.zstd.useDictionary;
+    }
+
+    /**
+     * Returns the dictionary for the folder the given region file is in, loading it if it has not been loaded yet.
+     * Loading a dictionary registers it for decompression, so this should be called for every opened region file
+     * regardless of the configured compression format.
+     *
+     * @param regionFile region file path
+     * @return the dictionary, or {@code null} if the folder has none
+     */
+    public static @Nullable Dictionary dictionaryFor(final Path regionFile) {
+        final Path folder = regionFile.toAbsolutePath().getParent();
+        if (folder == null) {
+            return null;
+        }
+        return DICTIONARIES_BY_FOLDER.computeIfAbsent(folder, ZstdRegionCompression::loadDictionary).orElse(null);
+    }
+
+    private static Optional<Dictionary> loadDictionary(final Path folder) {
+        final Path file = folder.resolve(DICTIONARY_FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            final Dictionary dictionary = Dictionary.of(Files.readAllBytes(file));
+            registerDictionary(dictionary);
+            return Optional.of(dictionary);
+        } catch (final IOException | IllegalArgumentException ex) {
+            LOGGER.error("Failed to load zstd dictionary {}", file.toAbsolutePath(), ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Makes the dictionary available to the read path and binds it to the given folder, replacing any dictionary that
+     * was previously used for writing there. Frames compressed with an older dictionary stay readable as long as that
+     * dictionary has been registered once.
+     *
+     * @param folder region folder
+     * @param dictionary dictionary
+     */
+    public static void useDictionary(final Path folder, final Dictionary dictionary) {
+        registerDictionary(dictionary);
+        DICTIONARIES_BY_FOLDER.put(folder.toAbsolutePath(), Optional.of(dictionary));
+    }
+
+    private static void registerDictionary(final Dictionary dictionary) {
+        DECOMPRESS_DICTIONARIES.computeIfAbsent(dictionary.id(), id -> new ZstdDictDecompress(dictionary.bytes()));
+    }
+
+    public static InputStream wrapInput(final InputStream input) throws IOException {
+        final PushbackInputStream pushback = new PushbackInputStream(input, MAX_FRAME_HEADER_SIZE);
+        final byte[] header = pushback.readNBytes(MAX_FRAME_HEADER_SIZE);
+        pushback.unread(header);
+
+        final ZstdInputStreamNoFinalizer stream = new ZstdInputStreamNoFinalizer(pushback);
+        final long dictionaryId = Zstd.getDictIdFromFrame(header);
+        if (dictionaryId != 0L) {
+            final ZstdDictDecompress dictionary = DECOMPRESS_DICTIONARIES.get(dictionaryId);
+            if (dictionary == null) {
+                stream.close();
+                throw new IOException("Chunk data was compressed with unknown zstd dictionary " + Long.toUnsignedString(dictionaryId));
+            }
+            stream.setDict(dictionary);
+        }
+        return new FastBufferedInputStream(stream);
+    }
+
+    public static OutputStream wrapOutput(final OutputStream output, final @Nullable Dictionary dictionary) throws IOException {
+        return wrapOutput(output, useDictionaries() ? dictionary : null, compressionLevel());
+    }
+
+    public static OutputStream wrapOutput(final OutputStream output, final @Nullable Dictionary dictionary, final int level) throws IOException {
+        final ZstdOutputStreamNoFinalizer stream = new ZstdOutputStreamNoFinalizer(output, level);
+        if (dictionary != null) {
+            stream.setDict(dictionary.compressor(level));
+        }
+        return new BufferedOutputStream(stream);
+    }
+
+    public static final class Dictionary {
+
+        private final long id;
+        private final byte[] bytes;
+        private volatile @Nullable LeveledCompressor compressor;
+
+        private Dictionary(final long id, final byte[] bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        public static Dictionary of(final byte[] bytes) {
+            final long id = Zstd.getDictIdFromDict(bytes);
+            if (id == 0L) {
+                throw new IllegalArgumentException("Not a zstd dictionary, or dictionary has no id");
+            }
+            return new Dictionary(id, bytes);
+        }
+
+        public long id() {
+            return this.id;
+        }
+
+        public byte[] bytes() {
+            return this.bytes;
+        }
+
+        ZstdDictCompress compressor(final int level) {
+            LeveledCompressor compressor = this.compressor;
+            if (compressor == null || compressor.level() != level) {
+                // racing threads may both create one, which is harmless
+                this.compressor = compressor = new LeveledCompressor(level, new ZstdDictCompress(this.bytes, level));
+            }
+            return compressor.compressor();
+        }
+
+        private record LeveledCompressor(int level, ZstdDictCompress compressor) {
+        }
+    }
+}
@@ -290,13 +290,14 @@ public class CraftChunk implements Chunk {
         byte[][] sectionEmitLights = includeLightData ? new byte[cs.length][] : null;
         boolean[] sectionEmpty = new boolean[cs.length];
         PalettedContainerRO<Holder<net.minecraft.world.level.biome.Biome>>[] biome = (includeBiome || includeBiomeTempRain) ? new PalettedContainer[cs.length] : null;
+        boolean copyOnWrite = this.level.paperConfig().chunks.copyOnWriteSaveSnapshots; // Paper - copy on write snapshots
 
         for (int i = 0; i < cs.length; i++) {
 
             // Paper start - Fix ChunkSnapshot#isSectionEmpty(int); and remove codec usage
             sectionEmpty[i] = cs[i].hasOnlyAir(); // fix sectionEmpty array not being filled
             if (!sectionEmpty[i]) {
-                sectionBlockIDs[i] = cs[i].getStates().copy(); // use copy instead of round tripping with codecs
+                sectionBlockIDs[i] = copyOnWrite ? cs[i].getStates().copyOnWrite() : cs[i].getStates().copy(); // use copy instead of round tripping with codecs, shared copy-on-write if enabled
             } else {
                 sectionBlockIDs[i] = CraftChunk.emptyBlockIDs; // use cached instance for empty block sections
             }
@@ -322,7 +323,7 @@ public class CraftChunk implements Chunk {
             }
 
             if (biome != null) {
-                biome[i] = cs[i].getBiomes().copy(); // Paper - Perf: use copy instead of round tripping with codecs
+                biome[i] = copyOnWrite && cs[i].getBiomes() instanceof PalettedContainer<Holder<net.minecraft.world.level.biome.Biome>> biomes ? biomes.copyOnWrite() : cs[i].getBiomes().copy(); // Paper - Perf: use copy instead of round tripping with codecs; copy on write snapshots
             }
         }
 
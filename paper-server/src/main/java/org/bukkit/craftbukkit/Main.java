@@ -129,6 +129,18 @@ public class Main {
                 this.accepts("eraseCache", "Whether to force cache erase during world upgrade");
                 this.accepts("recreateRegionFiles", "Whether to recreate region files during world upgrade");
                 this.accepts("safeMode", "Loads level with vanilla datapack only"); // Paper
+                // Paper start - offline region recompression
+                this.accepts("recompressRegions", "Recompress all region files in the world container to the given format and exit")
+                        .withRequiredArg()
+                        .ofType(String.class)
+                        .describedAs("gzip, zlib, lz4, zstd or none");
+                this.accepts("zstdCompressionLevel", "Compression level used by recompressRegions when recompressing to zstd")
+                        .withRequiredArg()
+                        .ofType(Integer.class)
+                        .defaultsTo(io.papermc.paper.world.storage.ZstdRegionCompression.DEFAULT_LEVEL)
+                        .describedAs("Level");
+                this.accepts("trainZstdDictionary", "Train a zstd dictionary for every region folder before recompressing it to zstd");
+                // Paper end - offline region recompression
                 this.accepts("nogui", "Disables the graphical console");
 
                 this.accepts("nojline", "Disables jline and emulates the vanilla console");
@@ -188,6 +200,10 @@ public class Main {
             }
         } else if (options.has("v")) {
             System.out.println(CraftServer.class.getPackage().getImplementationVersion());
+        // Paper start - offline region recompression
+        } else if (options.has("recompressRegions")) {
+            io.papermc.paper.world.storage.RegionRecompressor.run(options);
+        // Paper end - offline region recompression
         } else {
             // Do you love Java using + and ! as string based identifiers? I sure do!
             String path = new File(".").getAbsolutePath();
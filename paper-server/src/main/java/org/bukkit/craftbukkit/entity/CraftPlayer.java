@@ -539,11 +539,7 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
     public void playerListName(net.kyori.adventure.text.Component name) {
         getHandle().listName = name == null ? null : io.papermc.paper.adventure.PaperAdventure.asVanilla(name);
         if (getHandle().connection == null) return; // Updates are possible before the player has fully joined
-        for (ServerPlayer player : server.getHandle().players) {
-            if (player.getBukkitEntity().canSee(this)) {
-                player.connection.send(new ClientboundPlayerInfoUpdatePacket(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME, getHandle()));
-            }
-        }
+        this.server.getHandle().playerInfoUpdates.send(this.getHandle(), ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME); // Paper - aggregate player info updates - API updates are sent right away
     }
     @Override
     public net.kyori.adventure.text.Component playerListName() {
@@ -570,11 +566,7 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
         }
         this.getHandle().listName = name.equals(this.getName()) ? null : CraftChatMessage.fromStringOrNull(name);
         if (this.getHandle().connection == null) return; // Paper - Updates are possible before the player has fully joined
-        for (ServerPlayer player : (List<ServerPlayer>) this.server.getHandle().players) {
-            if (player.getBukkitEntity().canSee(this)) {
-                player.connection.send(new ClientboundPlayerInfoUpdatePacket(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME, this.getHandle()));
-            }
-        }
+        this.server.getHandle().playerInfoUpdates.send(this.getHandle(), ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME); // Paper - aggregate player info updates - API updates are sent right away
     }
 
     @Override
@@ -589,11 +581,7 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
         this.getHandle().listOrder = order;
         // Paper start - Send update packet
         if (getHandle().connection == null) return; // Updates are possible before the player has fully joined
-        for (ServerPlayer player : server.getHandle().players) {
-            if (player.getBukkitEntity().canSee(this)) {
-                player.connection.send(new ClientboundPlayerInfoUpdatePacket(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER, getHandle()));
-            }
-        }
+        this.server.getHandle().playerInfoUpdates.send(this.getHandle(), ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER); // Paper - aggregate player info updates - API updates are sent right away
         // Paper end - Send update packet
     }
 
@@ -1808,6 +1796,7 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
         if (this.getHandle().connection == null) return;
 
         this.getHandle().setGameMode(GameType.byId(mode.getValue()), org.bukkit.event.player.PlayerGameModeChangeEvent.Cause.PLUGIN, null); // Paper - Expand PlayerGameModeChangeEvent
+        this.server.getHandle().playerInfoUpdates.sendQueued(this.getHandle(), ClientboundPlayerInfoUpdatePacket.Action.UPDATE_GAME_MODE); // Paper - aggregate player info updates - API updates are sent right away
     }
 
     @Override
@@ -2122,6 +2111,7 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
             // Paper end
             this.getHandle().connection.send(ClientboundPlayerInfoUpdatePacket.createPlayerInitializing(List.of(otherPlayer), this.getHandle())); // Paper - Add Listing API for Player
             if (original != null) otherPlayer.setUUID(original); // Paper - uuid override
+            else this.server.getHandle().playerInfoUpdates.added(otherPlayer, false); // Paper - aggregate player info updates
         }
 
         ChunkMap.TrackedEntity entry = tracker.entityMap.get(other.getId());
@@ -604,6 +604,7 @@ public class CraftEventFactory {
 
             event = CraftEventFactory.callCreatureSpawnEvent((net.minecraft.world.entity.LivingEntity) entity, spawnReason);
         } else if (entity instanceof ItemEntity) {
+            if (ItemSpawnEvent.getHandlerList().hasRegisteredListeners()) // Paper - skip event without listeners
             event = CraftEventFactory.callItemSpawnEvent((ItemEntity) entity);
         } else if (entity.getBukkitEntity() instanceof org.bukkit.entity.Projectile) {
             // Not all projectiles extend EntityProjectile, so check for Bukkit interface instead
@@ -831,6 +832,12 @@ public class CraftEventFactory {
             boolean result = world.setBlock(target, state, flags);
             return !checkSetResult || result;
         }
+        // Paper start - skip event without listeners
+        if (!BlockSpreadEvent.getHandlerList().hasRegisteredListeners()) {
+            boolean result = world.setBlock(target, state, flags);
+            return !checkSetResult || result;
+        }
+        // Paper end - skip event without listeners
 
         CraftBlockState snapshot = CraftBlockStates.getBlockState(world, target);
         snapshot.setData(state);
@@ -1178,6 +1185,12 @@ public class CraftEventFactory {
     // Paper end
 
     public static boolean handleBlockGrowEvent(Level world, BlockPos pos, net.minecraft.world.level.block.state.BlockState state, int flags) {
+        // Paper start - skip event without listeners
+        if (!BlockGrowEvent.getHandlerList().hasRegisteredListeners()) {
+            world.setBlock(pos, state, flags);
+            return true;
+        }
+        // Paper end - skip event without listeners
         CraftBlockState snapshot = CraftBlockStates.getBlockState(world, pos);
         snapshot.setData(state);
 
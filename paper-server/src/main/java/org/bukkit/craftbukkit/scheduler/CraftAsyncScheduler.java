@@ -28,7 +28,6 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.bukkit.plugin.Plugin;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -75,8 +74,8 @@ public class CraftAsyncScheduler extends CraftScheduler {
 
     private synchronized void runTasks(int currentTick) {
         parsePending();
-        while (!this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick) {
-            CraftTask task = this.pending.remove();
+        CraftTask task;
+        while ((task = this.pending.poll(currentTick)) != null) {
             if (executeTask(task)) {
                 final long period = task.getPeriod();
                 if (period > 0) {
@@ -102,13 +101,13 @@ public class CraftAsyncScheduler extends CraftScheduler {
     @Override
     public synchronized void cancelTasks(Plugin plugin) {
         parsePending();
-        for (Iterator<CraftTask> iterator = this.pending.iterator(); iterator.hasNext(); ) {
-            CraftTask task = iterator.next();
+        this.pending.removeIf((task) -> {
             if (task.getTaskId() != -1 && (plugin == null || task.getOwner().equals(plugin))) {
                 task.cancel0();
-                iterator.remove();
+                return true;
             }
-        }
+            return false;
+        });
     }
 
     /**
@@ -3,10 +3,7 @@ package org.bukkit.craftbukkit.scheduler;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -75,16 +72,7 @@ public class CraftScheduler implements BukkitScheduler {
     /**
      * Main thread logic only
      */
-    final PriorityQueue<CraftTask> pending = new PriorityQueue<CraftTask>(10, // Paper
-            new Comparator<CraftTask>() {
-                @Override
-                public int compare(final CraftTask o1, final CraftTask o2) {
-                    int value = Long.compare(o1.getNextRun(), o2.getNextRun());
-
-                    // If the tasks should run on the same tick they should be run FIFO
-                    return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
-                }
-            });
+    final CraftTaskWheel pending = new CraftTaskWheel(-1L); // Paper - timing wheel; starts at the initial current tick
     /**
      * Main thread logic only
      */
@@ -277,24 +265,15 @@ public class CraftScheduler implements BukkitScheduler {
                 new Runnable() {
                     @Override
                     public void run() {
-                        if (!this.check(CraftScheduler.this.temp)) {
-                            this.check(CraftScheduler.this.pending);
-                        }
-                    }
-                    private boolean check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getTaskId() == taskId) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    CraftScheduler.this.runners.remove(taskId);
-                                }
-                                return true;
+                        // Paper start - timing wheel; pending sync tasks are in runners, tasks in temp are dropped once cancelled
+                        final CraftTask task = CraftScheduler.this.runners.get(taskId);
+                        if (task != null && CraftScheduler.this.pending.remove(task)) {
+                            task.cancel0();
+                            if (task.isSync()) {
+                                CraftScheduler.this.runners.remove(taskId);
                             }
                         }
-                        return false;
+                        // Paper end - timing wheel
                     }
                 });
         this.handle(task, 0L);
@@ -318,24 +297,23 @@ public class CraftScheduler implements BukkitScheduler {
         // Paper end
         final CraftTask task = new CraftTask(
                 new Runnable() {
+                    // Paper start - timing wheel
                     @Override
                     public void run() {
-                        this.check(CraftScheduler.this.pending);
-                        this.check(CraftScheduler.this.temp);
+                        CraftScheduler.this.pending.removeIf(this::check);
+                        CraftScheduler.this.temp.removeIf(this::check);
                     }
-                    void check(final Iterable<CraftTask> collection) {
-                        final Iterator<CraftTask> tasks = collection.iterator();
-                        while (tasks.hasNext()) {
-                            final CraftTask task = tasks.next();
-                            if (task.getOwner().equals(plugin)) {
-                                task.cancel0();
-                                tasks.remove();
-                                if (task.isSync()) {
-                                    CraftScheduler.this.runners.remove(task.getTaskId());
-                                }
+                    boolean check(final CraftTask task) {
+                        if (task.getOwner().equals(plugin)) {
+                            task.cancel0();
+                            if (task.isSync()) {
+                                CraftScheduler.this.runners.remove(task.getTaskId());
                             }
+                            return true;
                         }
+                        return false;
                     }
+                    // Paper end - timing wheel
                 });
         this.handle(task, 0L);
         for (CraftTask taskPending = this.head.getNext(); taskPending != null; taskPending = taskPending.getNext()) {
@@ -459,8 +437,8 @@ public class CraftScheduler implements BukkitScheduler {
         // Paper end
         final List<CraftTask> temp = this.temp;
         this.parsePending();
-        while (this.isReady(this.currentTick)) {
-            final CraftTask task = this.pending.remove();
+        CraftTask task; // Paper - timing wheel
+        while ((task = this.pending.poll(this.currentTick)) != null) { // Paper - timing wheel
             if (task.getPeriod() < CraftTask.NO_REPEATING) {
                 if (task.isSync()) {
                     this.runners.remove(task.getTaskId(), task);
@@ -503,7 +481,15 @@ public class CraftScheduler implements BukkitScheduler {
                 this.runners.remove(task.getTaskId());
             }
         }
-        this.pending.addAll(temp);
+        // Paper start - timing wheel; drop tasks cancelled while they were running
+        for (final CraftTask repeating : temp) {
+            if (repeating.getPeriod() >= CraftTask.NO_REPEATING) {
+                this.pending.add(repeating);
+            } else if (repeating.isSync()) {
+                this.runners.remove(repeating.getTaskId(), repeating);
+            }
+        }
+        // Paper end - timing wheel
         temp.clear();
         //this.debugHead = this.debugHead.getNextHead(this.currentTick); // Paper
     }
@@ -563,10 +549,6 @@ public class CraftScheduler implements BukkitScheduler {
         this.head = lastTask;
     }
 
-    private boolean isReady(final int currentTick) {
-        return !this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick;
-    }
-
     @Override
     public String toString() {
         // Paper start
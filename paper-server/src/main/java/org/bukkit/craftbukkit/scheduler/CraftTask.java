@@ -29,6 +29,11 @@ public class CraftTask implements BukkitTask, Runnable { // Spigot
     private final Plugin plugin;
     private final int id;
     private final long createdAt = System.nanoTime();
+    // Paper start - timing wheel
+    CraftTask wheelPrev;
+    CraftTask wheelNext;
+    int wheelSlot = CraftTaskWheel.NONE;
+    // Paper end - timing wheel
 
     CraftTask() {
         this(null, null, CraftTask.NO_REPEATING, CraftTask.NO_REPEATING);
@@ -0,0 +1,192 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical timing wheel holding the pending tasks of a {@link CraftScheduler}.
+ * <p>
+ * Each level has {@link #SLOTS} slots, a slot on level {@code n} covering {@code SLOTS^n} ticks. A task is placed on
+ * the level of the highest group of {@link #BITS} bits in which its next run differs from the current tick, so it is
+ * cascaded to a lower level exactly when the current tick reaches that group, and expires from level 0 on its tick.
+ * Slots are doubly linked lists through the tasks themselves, making scheduling and cancelling constant time.
+ * <p>
+ * Expired tasks, and tasks scheduled for the current tick or earlier, are moved to a small queue ordered like the
+ * priority queue this replaces: by next run, then by creation. Tasks due on the same tick therefore still run in the
+ * order they were created.
+ * <p>
+ * Not thread safe, only the thread owning the pending tasks of the scheduler may use it.
+ */
+final class CraftTaskWheel {
+
+    static final int NONE = -1;
+    private static final int READY = -2;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+    private static final Comparator<CraftTask> ORDER = (o1, o2) -> {
+        final int value = Long.compare(o1.getNextRun(), o2.getNextRun());
+
+        // If the tasks should run on the same tick they should be run FIFO
+        return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
+    };
+
+    private final CraftTask[] slots = new CraftTask[LEVELS * SLOTS];
+    private final PriorityQueue<CraftTask> ready = new PriorityQueue<>(ORDER);
+    private long tick;
+    private int scheduled;
+
+    /**
+     * @param tick the current tick of the scheduler
+     */
+    CraftTaskWheel(final long tick) {
+        this.tick = tick;
+    }
+
+    int size() {
+        return this.scheduled + this.ready.size();
+    }
+
+    boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    void add(final CraftTask task) {
+        final long nextRun = task.getNextRun();
+        if (nextRun <= this.tick) {
+            task.wheelSlot = READY;
+            this.ready.add(task);
+            return;
+        }
+
+        final int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(nextRun ^ this.tick)) / BITS;
+        final int slot = level * SLOTS + (int) ((nextRun >> (BITS * level)) & MASK);
+        final CraftTask head = this.slots[slot];
+        task.wheelSlot = slot;
+        task.wheelPrev = null;
+        task.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = task;
+        }
+        this.slots[slot] = task;
+        ++this.scheduled;
+    }
+
+    void addAll(final Collection<CraftTask> tasks) {
+        for (final CraftTask task : tasks) {
+            this.add(task);
+        }
+    }
+
+    /**
+     * Removes a task if it is pending in this wheel.
+     *
+     * @return whether the task was removed
+     */
+    boolean remove(final CraftTask task) {
+        final int slot = task.wheelSlot;
+        if (slot == NONE) {
+            return false;
+        }
+        if (slot == READY) {
+            this.ready.remove(task);
+            task.wheelSlot = NONE;
+        } else {
+            this.unlink(task);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all pending tasks matching the filter.
+     */
+    void removeIf(final Predicate<? super CraftTask> filter) {
+        this.ready.removeIf(task -> {
+            if (filter.test(task)) {
+                task.wheelSlot = NONE;
+                return true;
+            }
+            return false;
+        });
+        for (int slot = 0; slot < this.slots.length; ++slot) {
+            for (CraftTask task = this.slots[slot], next; task != null; task = next) {
+                next = task.wheelNext;
+                if (filter.test(task)) {
+                    this.unlink(task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel to the given tick and removes the next task due on or before it.
+     *
+     * @return the next due task, or {@code null} if there is none
+     */
+    CraftTask poll(final long currentTick) {
+        while (this.tick < currentTick) {
+            if (this.scheduled == 0) {
+                // nothing to cascade or expire on the ticks in between
+                this.tick = currentTick;
+                break;
+            }
+            this.advance();
+        }
+
+        final CraftTask task = this.ready.peek();
+        if (task == null || task.getNextRun() > currentTick) {
+            return null;
+        }
+        this.ready.poll();
+        task.wheelSlot = NONE;
+        return task;
+    }
+
+    private void advance() {
+        final long tick = ++this.tick;
+        // a level is cascaded whenever all lower groups of the tick wrap around to 0
+        for (int level = 1; level < LEVELS && (tick & ((1L << (BITS * level)) - 1L)) == 0L; ++level) {
+            for (CraftTask task = this.detach(level * SLOTS + (int) ((tick >> (BITS * level)) & MASK)), next; task != null; task = next) {
+                next = task.wheelNext;
+                this.add(task);
+            }
+        }
+        for (CraftTask task = this.detach((int) (tick & MASK)), next; task != null; task = next) {
+            next = task.wheelNext;
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            task.wheelSlot = READY;
+            this.ready.add(task);
+        }
+    }
+
+    private CraftTask detach(final int slot) {
+        final CraftTask head = this.slots[slot];
+        this.slots[slot] = null;
+        for (CraftTask task = head; task != null; task = task.wheelNext) {
+            task.wheelSlot = NONE;
+            --this.scheduled;
+        }
+        return head;
+    }
+
+    private void unlink(final CraftTask task) {
+        final CraftTask prev = task.wheelPrev;
+        final CraftTask next = task.wheelNext;
+        if (prev == null) {
+            this.slots[task.wheelSlot] = next;
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        task.wheelSlot = NONE;
+        --this.scheduled;
+    }
+}
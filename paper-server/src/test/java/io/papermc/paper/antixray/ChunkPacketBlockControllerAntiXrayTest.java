@@ -0,0 +1,104 @@
+package io.papermc.paper.antixray;
+
+import io.papermc.paper.configuration.WorldConfiguration;
+import io.papermc.paper.configuration.type.EngineMode;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntUnaryOperator;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.GlobalPalette;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Normal
+public class ChunkPacketBlockControllerAntiXrayTest {
+
+    private static final int SECTIONS = 24;
+    private static final int MIN_SECTION_Y = -4;
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+    // not obfuscated, splits the obfuscated sections into two stacks
+    private static final int PLAIN_SECTION = 5;
+    private static final BlockState[] ORES = {
+        Blocks.COAL_ORE.defaultBlockState(), Blocks.IRON_ORE.defaultBlockState(), Blocks.DIAMOND_ORE.defaultBlockState(),
+        Blocks.DEEPSLATE_GOLD_ORE.defaultBlockState(), Blocks.DEEPSLATE_REDSTONE_ORE.defaultBlockState()
+    };
+
+    @ParameterizedTest
+    @EnumSource(value = EngineMode.class, names = {"OBFUSCATE", "OBFUSCATE_LAYER"})
+    public void testParallelMatchesSerial(final EngineMode engineMode) {
+        final WorldConfiguration worldConfiguration = Mockito.mock(WorldConfiguration.class);
+        final WorldConfiguration.Anticheat.AntiXray config = worldConfiguration.new Anticheat().new AntiXray();
+        config.enabled = true;
+        config.engineMode = engineMode;
+        final ChunkPacketBlockControllerAntiXray controller = new ChunkPacketBlockControllerAntiXray(config, EmptyBlockGetter.INSTANCE, Runnable::run);
+
+        final LevelChunk chunk = Mockito.mock(LevelChunk.class);
+        Mockito.when(chunk.getSectionsCount()).thenReturn(SECTIONS);
+        Mockito.when(chunk.getMinSectionY()).thenReturn(MIN_SECTION_Y);
+        Mockito.when(chunk.getSections()).thenReturn(new LevelChunkSection[SECTIONS]);
+        Mockito.when(chunk.getLevel()).thenReturn(Mockito.mock(Level.class));
+
+        final int bits = Mth.ceillog2(Block.BLOCK_STATE_REGISTRY.size());
+        final int sectionBytes = Mth.positiveCeilDiv(SECTION_SIZE, 64 / bits) * Long.BYTES;
+        final int sections = (config.maxBlockHeight >> 4) - MIN_SECTION_Y;
+        final byte[] original = new byte[sections * sectionBytes];
+        final ChunkPacketInfoAntiXray chunkPacketInfo = new ChunkPacketInfoAntiXray(null, chunk, controller);
+        chunkPacketInfo.setNearbyChunks(null, null, null, null);
+
+        final GlobalPalette<BlockState> palette = new GlobalPalette<>(Block.BLOCK_STATE_REGISTRY);
+        final SplittableRandom random = new SplittableRandom(1L);
+        final BitStorageWriter writer = new BitStorageWriter();
+        writer.setBuffer(original);
+        writer.setBits(bits);
+        for (int section = 0; section < sections; ++section) {
+            final int index = section * sectionBytes;
+            chunkPacketInfo.setBits(section, bits);
+            chunkPacketInfo.setPalette(section, palette);
+            chunkPacketInfo.setIndex(section, index);
+            if (section != PLAIN_SECTION) {
+                chunkPacketInfo.setPresetValues(section, controller.getPresetBlockStates(null, null, section + MIN_SECTION_Y));
+            }
+            final BlockState base = section + MIN_SECTION_Y < 0 ? Blocks.DEEPSLATE.defaultBlockState() : Blocks.STONE.defaultBlockState();
+            writer.setIndex(index);
+            for (int i = 0; i < SECTION_SIZE; ++i) {
+                final int roll = random.nextInt(100);
+                final BlockState state = roll < 15 ? Blocks.AIR.defaultBlockState() : roll < 20 ? ORES[random.nextInt(ORES.length)] : base;
+                writer.write(palette.idFor(state));
+            }
+            writer.flush();
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // every path starts its own random sequence, so only a fixed pick gives both the same blocks
+            for (final IntUnaryOperator fixedRandom : new IntUnaryOperator[] {blocks -> 0, blocks -> blocks / 2, blocks -> blocks - 1}) {
+                controller.fixedRandom = fixedRandom;
+
+                final byte[] serial = original.clone();
+                chunkPacketInfo.setBuffer(serial);
+                controller.obfuscateSerial(chunkPacketInfo);
+                assertFalse(Arrays.equals(original, serial), "nothing was obfuscated");
+
+                final byte[] parallel = original.clone();
+                chunkPacketInfo.setBuffer(parallel);
+                controller.obfuscateParallel(chunkPacketInfo, pool);
+                assertArrayEquals(serial, parallel);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.papermc.paper.entity.activation;
+
+import java.util.SplittableRandom;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.phys.AABB;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class ActivationGridTest {
+
+    private static final int HEIGHT = 384;
+    private static final ActivationType[] TYPES = ActivationType.values();
+
+    @Test
+    public void testMatchesBoundingBoxChecks() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        final ActivationGrid grid = new ActivationGrid();
+        final int[] ranges = {16, 48, 16, 24, 16, 48, 8};
+        final Player[] players = new Player[8];
+        final AABB[] playerBoxes = new AABB[players.length];
+        for (int i = 0; i < players.length; ++i) {
+            players[i] = Mockito.mock(Player.class);
+            playerBoxes[i] = playerBox(random);
+        }
+
+        for (int tick = 1; tick <= 100; ++tick) {
+            grid.beginTick(tick, HEIGHT);
+            for (final ActivationType type : TYPES) {
+                grid.setRange(type, ranges[type.ordinal()]);
+            }
+            // the last player leaves every other tick
+            final int activePlayers = (tick & 1) == 0 ? players.length : players.length - 1;
+            for (int i = 0; i < activePlayers; ++i) {
+                if (random.nextInt(20) == 0) {
+                    playerBoxes[i] = playerBox(random);
+                } else {
+                    playerBoxes[i] = playerBoxes[i].move(random.nextDouble(-4.0, 4.0), random.nextDouble(-1.0, 1.0), random.nextDouble(-4.0, 4.0));
+                }
+                grid.updatePlayer(players[i], playerBoxes[i]);
+            }
+            grid.endTick();
+
+            for (int i = 0; i < 1000; ++i) {
+                final ActivationType type = TYPES[random.nextInt(TYPES.length)];
+                final double x = random.nextDouble(-64.0, 192.0);
+                final double y = random.nextDouble(-600.0, 600.0);
+                final double z = random.nextDouble(-64.0, 192.0);
+                final double halfWidth = random.nextInt(10) == 0 ? random.nextDouble(2.0, 8.0) : random.nextDouble(0.0, 1.0);
+                final AABB box = new AABB(x - halfWidth, y, z - halfWidth, x + halfWidth, y + 2.0, z + halfWidth);
+
+                boolean expected = false;
+                for (int player = 0; player < activePlayers; ++player) {
+                    final int range = ranges[type.ordinal()];
+                    if (playerBoxes[player].inflate(range, HEIGHT, range).intersects(box)) {
+                        expected = true;
+                        break;
+                    }
+                }
+                assertEquals(expected, grid.isInRange(type, box), () -> "entity of type " + type + " at " + box);
+            }
+        }
+    }
+
+    private static AABB playerBox(final SplittableRandom random) {
+        final double x = random.nextDouble(0.0, 128.0);
+        final double y = random.nextDouble(-64.0, 400.0);
+        final double z = random.nextDouble(0.0, 128.0);
+        return new AABB(x - 0.3, y, z - 0.3, x + 0.3, y + 1.8, z + 0.3);
+    }
+}
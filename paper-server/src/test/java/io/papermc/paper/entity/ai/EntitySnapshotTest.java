@@ -0,0 +1,113 @@
+package io.papermc.paper.entity.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import net.minecraft.world.phys.AABB;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EntitySnapshotTest {
+
+    private static final int ENTITIES = 2000;
+
+    @Test
+    public void testMatchesBoundingBoxChecks() {
+        final SplittableRandom random = new SplittableRandom(42L);
+        final EntitySnapshot<Integer> snapshot = new EntitySnapshot<>();
+        final AABB[] boxes = new AABB[ENTITIES];
+        final double[][] positions = new double[ENTITIES][];
+        for (int i = 0; i < ENTITIES; ++i) {
+            positions[i] = position(random);
+            boxes[i] = box(random, positions[i]);
+            snapshot.add(i, boxes[i], positions[i][0], positions[i][1], positions[i][2]);
+        }
+
+        for (final EntitySnapshot.Query<Integer> query : queries(random, positions)) {
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < ENTITIES; ++i) {
+                if (i != query.self() && boxes[i].intersects(query.box())) {
+                    expected.add(i);
+                }
+            }
+            // the sort is stable, so entities at the same distance stay in the order they were added in
+            expected.sort(Comparator.comparingDouble(i -> distanceSqr(positions[i], query)));
+            assertEquals(expected, snapshot.nearest(query), () -> "query " + query);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        final SplittableRandom random = new SplittableRandom(7L);
+        final EntitySnapshot<Integer> snapshot = new EntitySnapshot<>();
+        final double[][] positions = new double[ENTITIES][];
+        for (int i = 0; i < ENTITIES; ++i) {
+            positions[i] = position(random);
+            snapshot.add(i, box(random, positions[i]), positions[i][0], positions[i][1], positions[i][2]);
+        }
+        final List<EntitySnapshot.Query<Integer>> queries = queries(random, positions);
+        final List<Integer>[] serial = snapshot.nearest(queries, null);
+
+        for (final int threads : new int[] {2, 3, 8}) {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int run = 0; run < 5; ++run) {
+                    final List<Integer>[] parallel = snapshot.nearest(queries, pool);
+                    assertEquals(serial.length, parallel.length);
+                    for (int i = 0; i < serial.length; ++i) {
+                        assertEquals(serial[i], parallel[i], "query " + i + " with " + threads + " threads");
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testTiesKeepAddOrder() {
+        final EntitySnapshot<Integer> snapshot = new EntitySnapshot<>();
+        // four entities at the same distance from the origin, one of them in another chunk column
+        final double[][] positions = {{2.0, 0.0, 0.0}, {-2.0, 0.0, 0.0}, {0.0, 0.0, 2.0}, {0.0, 0.0, -2.0}};
+        for (int i = 0; i < positions.length; ++i) {
+            final double[] position = positions[i];
+            snapshot.add(i, new AABB(position[0] - 0.3, position[1], position[2] - 0.3, position[0] + 0.3, position[1] + 1.8, position[2] + 0.3), position[0], position[1], position[2]);
+        }
+        snapshot.add(4, new AABB(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3), 0.0, 0.0, 0.0);
+
+        final EntitySnapshot.Query<Integer> query = new EntitySnapshot.Query<>(4, new AABB(-8.0, -8.0, -8.0, 8.0, 8.0, 8.0), 0.0, 0.0, 0.0);
+        assertEquals(List.of(0, 1, 2, 3), snapshot.nearest(query));
+    }
+
+    private static List<EntitySnapshot.Query<Integer>> queries(final SplittableRandom random, final double[][] positions) {
+        final List<EntitySnapshot.Query<Integer>> queries = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            final int self = random.nextInt(positions.length);
+            final double range = random.nextDouble(4.0, 24.0);
+            final double[] position = positions[self];
+            final AABB box = new AABB(position[0] - 0.3, position[1], position[2] - 0.3, position[0] + 0.3, position[1] + 1.8, position[2] + 0.3).inflate(range);
+            queries.add(new EntitySnapshot.Query<>(self, box, position[0], position[1], position[2]));
+        }
+        return queries;
+    }
+
+    private static double[] position(final SplittableRandom random) {
+        // a coarse grid, so that many entities end up at the same distance from each other
+        return new double[] {random.nextInt(-128, 128) * 0.5, random.nextInt(0, 16), random.nextInt(-128, 128) * 0.5};
+    }
+
+    private static AABB box(final SplittableRandom random, final double[] position) {
+        final double halfWidth = random.nextInt(20) == 0 ? random.nextDouble(1.0, 4.0) : 0.3;
+        return new AABB(position[0] - halfWidth, position[1], position[2] - halfWidth, position[0] + halfWidth, position[1] + 1.8, position[2] + halfWidth);
+    }
+
+    private static double distanceSqr(final double[] position, final EntitySnapshot.Query<Integer> query) {
+        final double dx = position[0] - query.x();
+        final double dy = position[1] - query.y();
+        final double dz = position[2] - query.z();
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,147 @@
+package io.papermc.paper.entity.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.ai.navigation.GroundPathNavigation;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.level.pathfinder.PathType;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@Normal
+public class PathCacheTest {
+
+    private static final int EXPIRE_AFTER = 100;
+    private static final int MAX_SIZE = 16;
+
+    @Test
+    public void testHitReturnsCopy() {
+        final PathCache cache = new PathCache();
+        final PathCache.Key key = key(0, 20);
+        assertNull(cache.get(key, 0, EXPIRE_AFTER));
+
+        final Path path = path(0, 20);
+        cache.put(key, path, 0, MAX_SIZE);
+        // navigations advance and trim the paths they follow
+        path.advance();
+
+        final Path cached = cache.get(key, 1, EXPIRE_AFTER);
+        assertNotNull(cached);
+        assertNotSame(path, cached);
+        assertEquals(0, cached.getNextNodeIndex());
+        assertEquals(path.getNodeCount(), cached.getNodeCount());
+        assertEquals(path.getTarget(), cached.getTarget());
+        assertNotSame(cached, cache.get(key, 2, EXPIRE_AFTER));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidatedByBlockChangeInCoveredChunk() {
+        final PathCache cache = new PathCache();
+        final PathCache.Key key = key(0, 40);
+        cache.put(key, path(0, 40), 0, MAX_SIZE);
+
+        // the path runs along z = 0 from x = 0 to x = 40, which touches the chunks at z = -1 as well
+        cache.invalidate(new BlockPos(8, 64, 40));
+        cache.invalidate(new BlockPos(-40, 64, 0));
+        assertNotNull(cache.get(key, 1, EXPIRE_AFTER));
+
+        cache.invalidate(new BlockPos(35, 64, -3));
+        assertNull(cache.get(key, 2, EXPIRE_AFTER));
+        assertEquals(1, cache.getInvalidated());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        final PathCache cache = new PathCache();
+        for (int i = 0; i < MAX_SIZE; ++i) {
+            cache.put(key(i, 20), path(i, 20), 0, MAX_SIZE);
+        }
+        // use the oldest path, so the second oldest is evicted instead
+        assertNotNull(cache.get(key(0, 20), 1, EXPIRE_AFTER));
+        cache.put(key(MAX_SIZE, 20), path(MAX_SIZE, 20), 1, MAX_SIZE);
+
+        assertEquals(MAX_SIZE, cache.size());
+        assertNotNull(cache.get(key(0, 20), 2, EXPIRE_AFTER));
+        assertNull(cache.get(key(1, 20), 2, EXPIRE_AFTER));
+
+        // all paths pass through this chunk, but the evicted one is no longer indexed
+        cache.invalidate(new BlockPos(1, 64, 0));
+        assertEquals(MAX_SIZE, cache.getInvalidated());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeyedOnMalus() {
+        final PathCache cache = new PathCache();
+        cache.put(key(0, 20), path(0, 20), 0, MAX_SIZE);
+        assertNotNull(cache.get(key(0, 20), 1, EXPIRE_AFTER));
+
+        // e.g. a wolf following its owner walks through water
+        final float[] malus = defaultMalus();
+        malus[PathType.WATER.ordinal()] = 0.0F;
+        assertNull(cache.get(key(0, 20, new PathCache.Malus(malus)), 1, EXPIRE_AFTER));
+    }
+
+    @Test
+    public void testDoesNotCachePartialPaths() {
+        final PathCache cache = new PathCache();
+        final PathCache.Key key = key(0, 40);
+        final List<Node> nodes = new ArrayList<>();
+        for (int x = 0; x <= 20; ++x) {
+            nodes.add(new Node(x, 64, 0));
+        }
+        cache.put(key, new Path(nodes, new BlockPos(40, 64, 0), false), 0, MAX_SIZE);
+        assertEquals(0, cache.size());
+        assertNull(cache.get(key, 1, EXPIRE_AFTER));
+    }
+
+    @Test
+    public void testExpires() {
+        final PathCache cache = new PathCache();
+        final PathCache.Key key = key(0, 20);
+        cache.put(key, path(0, 20), 0, MAX_SIZE);
+        assertNotNull(cache.get(key, EXPIRE_AFTER - 1, EXPIRE_AFTER));
+        assertNull(cache.get(key, EXPIRE_AFTER, EXPIRE_AFTER));
+        assertEquals(0, cache.size());
+    }
+
+    private static PathCache.Key key(final int startX, final int endX) {
+        return key(startX, endX, new PathCache.Malus(defaultMalus()));
+    }
+
+    private static PathCache.Key key(final int startX, final int endX, final PathCache.Malus malus) {
+        return new PathCache.Key(
+            EntityType.ZOMBIE, GroundPathNavigation.class, 0.6F, 1.95F, 1, malus, 3, 0.6F,
+            new BlockPos(startX, 64, 0).asLong(), Set.of(new BlockPos(endX, 64, 0)), 0, 16.0F, 24, 1.0F
+        );
+    }
+
+    private static float[] defaultMalus() {
+        final PathType[] pathTypes = PathType.values();
+        final float[] malus = new float[pathTypes.length];
+        for (int i = 0; i < pathTypes.length; ++i) {
+            malus[i] = pathTypes[i].getMalus();
+        }
+        return malus;
+    }
+
+    private static Path path(final int startX, final int endX) {
+        final List<Node> nodes = new ArrayList<>();
+        for (int x = startX; x <= endX; ++x) {
+            nodes.add(new Node(x, 64, 0));
+        }
+        return new Path(nodes, new BlockPos(endX, 64, 0), true);
+    }
+}
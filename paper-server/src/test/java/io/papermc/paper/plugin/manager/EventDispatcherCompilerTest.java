@@ -0,0 +1,148 @@
+package io.papermc.paper.plugin.manager;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class EventDispatcherCompilerTest {
+
+    private final PaperEventManager eventManager = new PaperEventManager(Bukkit.getServer());
+    private final List<String> calls = new ArrayList<>();
+
+    private RegisteredListener listener(final String name, final EventPriority priority, final PaperTestPlugin plugin, final boolean ignoreCancelled, final EventExecutor executor) {
+        return new RegisteredListener(new Listener() {}, (listener, event) -> {
+            this.calls.add(name);
+            executor.execute(listener, event);
+        }, priority, plugin, ignoreCancelled);
+    }
+
+    private RegisteredListener listener(final String name, final boolean ignoreCancelled, final EventExecutor executor) {
+        return this.listener(name, EventPriority.NORMAL, new PaperTestPlugin("test"), ignoreCancelled, executor);
+    }
+
+    private void compile(final RegisteredListener[] listeners, final Event event) throws ReflectiveOperationException {
+        final EventListenerProfiler.ListenerStats[] stats = this.eventManager.getProfiler().stats(listeners, event);
+        EventDispatcherCompiler.compile(this.eventManager, listeners, stats).dispatch(event);
+    }
+
+    @Test
+    public void testMatchesLoop() throws ReflectiveOperationException {
+        final PaperTestPlugin disabled = new PaperTestPlugin("disabled");
+        disabled.setEnabled(false);
+        final RegisteredListener[] listeners = {
+            this.listener("first", false, (listener, event) -> {}),
+            this.listener("disabled", EventPriority.NORMAL, disabled, false, (listener, event) -> {}),
+            this.listener("cancel", false, (listener, event) -> ((CancellableEvent) event).setCancelled(true)),
+            this.listener("throws", false, (listener, event) -> {
+                throw new IllegalStateException("expected");
+            }),
+            this.listener("ignored", true, (listener, event) -> {}),
+            this.listener("last", false, (listener, event) -> {}),
+        };
+
+        this.eventManager.callListeners(listeners, new CancellableEvent());
+        final List<String> expected = List.copyOf(this.calls);
+        assertEquals(List.of("first", "cancel", "throws", "last"), expected);
+
+        this.calls.clear();
+        this.compile(listeners, new CancellableEvent());
+        assertEquals(expected, this.calls);
+    }
+
+    @Test
+    public void testNonCancellableEvent() throws ReflectiveOperationException {
+        final RegisteredListener[] listeners = {
+            this.listener("ignoring", true, (listener, event) -> {}),
+            this.listener("normal", false, (listener, event) -> {}),
+        };
+        this.compile(listeners, new PlainEvent());
+        assertEquals(List.of("ignoring", "normal"), this.calls);
+    }
+
+    @Test
+    public void testRegisteredListenerSubclass() throws ReflectiveOperationException {
+        final RegisteredListener[] listeners = {
+            new RegisteredListener(new Listener() {}, (listener, event) -> {}, EventPriority.NORMAL, new PaperTestPlugin("test"), false) {
+                @Override
+                public void callEvent(final Event event) {
+                    EventDispatcherCompilerTest.this.calls.add("overridden");
+                }
+            }
+        };
+        this.compile(listeners, new PlainEvent());
+        assertEquals(List.of("overridden"), this.calls);
+    }
+
+    @Test
+    public void testCountsCalls() throws ReflectiveOperationException {
+        final RegisteredListener registration = this.listener("counted", false, (listener, event) -> {});
+        final RegisteredListener[] listeners = {registration};
+        final EventListenerProfiler.ListenerStats[] stats = this.eventManager.getProfiler().stats(listeners, new PlainEvent());
+        final EventDispatcher dispatcher = EventDispatcherCompiler.compile(this.eventManager, listeners, stats);
+
+        final int calls = EventListenerProfiler.SAMPLE_INTERVAL * 2;
+        for (int i = 0; i < calls; ++i) {
+            dispatcher.dispatch(new PlainEvent());
+        }
+        this.eventManager.callListeners(listeners, new PlainEvent());
+
+        assertEquals(calls + 1, this.calls.size());
+        assertEquals(calls + 1, stats[0].calls());
+        // the first call is always sampled
+        assertEquals(3, stats[0].sampledCalls());
+        assertEquals("PlainEvent", stats[0].eventName());
+    }
+
+    public static final class CancellableEvent extends Event implements Cancellable {
+
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+
+        private boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void setCancelled(final boolean cancel) {
+            this.cancelled = cancel;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
+
+    public static final class PlainEvent extends Event {
+
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
+}
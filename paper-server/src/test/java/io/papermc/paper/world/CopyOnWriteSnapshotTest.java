@@ -0,0 +1,65 @@
+package io.papermc.paper.world;
+
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Normal
+public class CopyOnWriteSnapshotTest {
+
+    private static PalettedContainer<BlockState> container() {
+        final PalettedContainer<BlockState> container = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES, null);
+        container.set(0, 0, 0, Blocks.STONE.defaultBlockState());
+        container.set(1, 2, 3, Blocks.DIRT.defaultBlockState());
+        return container;
+    }
+
+    @Test
+    public void testSnapshotKeepsStateAtCapture() {
+        final PalettedContainer<BlockState> container = container();
+        final PalettedContainer<BlockState> snapshot = container.copyOnWrite();
+
+        container.set(0, 0, 0, Blocks.GOLD_BLOCK.defaultBlockState());
+        // a block state that is not in the palette yet resizes it
+        container.set(4, 5, 6, Blocks.DIAMOND_BLOCK.defaultBlockState());
+
+        assertEquals(Blocks.STONE.defaultBlockState(), snapshot.get(0, 0, 0));
+        assertEquals(Blocks.DIRT.defaultBlockState(), snapshot.get(1, 2, 3));
+        assertEquals(Blocks.AIR.defaultBlockState(), snapshot.get(4, 5, 6));
+        assertEquals(Blocks.GOLD_BLOCK.defaultBlockState(), container.get(0, 0, 0));
+        assertEquals(Blocks.DIAMOND_BLOCK.defaultBlockState(), container.get(4, 5, 6));
+    }
+
+    @Test
+    public void testWriteToSnapshotDoesNotChangeContainer() {
+        final PalettedContainer<BlockState> container = container();
+        final PalettedContainer<BlockState> snapshot = container.copyOnWrite();
+
+        snapshot.set(0, 0, 0, Blocks.GOLD_BLOCK.defaultBlockState());
+
+        assertEquals(Blocks.STONE.defaultBlockState(), container.get(0, 0, 0));
+        assertEquals(Blocks.GOLD_BLOCK.defaultBlockState(), snapshot.get(0, 0, 0));
+        // the container copied nothing yet, so writing to it must not change the snapshot either
+        container.set(1, 2, 3, Blocks.GOLD_BLOCK.defaultBlockState());
+        assertEquals(Blocks.DIRT.defaultBlockState(), snapshot.get(1, 2, 3));
+    }
+
+    @Test
+    public void testMatchesCopy() {
+        final PalettedContainer<BlockState> container = container();
+        final PalettedContainer<BlockState> copy = container.copy();
+        final PalettedContainer<BlockState> snapshot = container.copyOnWrite();
+        for (int y = 0; y < 16; ++y) {
+            for (int z = 0; z < 16; ++z) {
+                for (int x = 0; x < 16; ++x) {
+                    assertEquals(copy.get(x, y, z), snapshot.get(x, y, z));
+                }
+            }
+        }
+    }
+}
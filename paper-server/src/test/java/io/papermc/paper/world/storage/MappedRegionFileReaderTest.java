@@ -0,0 +1,77 @@
+package io.papermc.paper.world.storage;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class MappedRegionFileReaderTest {
+
+    private static CompoundTag chunk(final Random random, final int size) {
+        // random bytes do not compress, so the chunk takes about as many sectors as its size
+        final byte[] data = new byte[size];
+        random.nextBytes(data);
+        final CompoundTag tag = new CompoundTag();
+        tag.putByteArray("data", data);
+        return tag;
+    }
+
+    private static void write(final RegionFile regionFile, final ChunkPos pos, final CompoundTag tag) throws IOException {
+        try (final DataOutputStream output = regionFile.getChunkDataOutputStream(pos)) {
+            NbtIo.write(tag, output);
+        }
+    }
+
+    @Test
+    public void testReadSurvivesRewriteOfItsSectors(@TempDir final Path folder) throws IOException {
+        final GlobalConfiguration.Misc misc = GlobalConfiguration.get().misc;
+        final boolean mapRegionFileReads = misc.mapRegionFileReads;
+        misc.mapRegionFileReads = true;
+        try (final RegionFile regionFile = new RegionFile(
+            new RegionStorageInfo("test", Level.OVERWORLD, "chunk"), folder.resolve("r.0.0.mca"), folder, false
+        )) {
+            final Random random = new Random(1L);
+            final ChunkPos pos = new ChunkPos(0, 0);
+            final CompoundTag original = chunk(random, 8 * 1024);
+            write(regionFile, pos, original);
+            // grow the file past the first segment, so the chunk is read from a mapping
+            for (int i = 1; i <= 3; ++i) {
+                write(regionFile, new ChunkPos(i, 0), chunk(random, 400 * 1024));
+            }
+
+            final long mappedReads = RegionFileMetrics.mappedReads();
+            final DataInputStream input = regionFile.getChunkDataInputStream(pos);
+            assertNotNull(input);
+            assertTrue(RegionFileMetrics.mappedReads() > mappedReads, "chunk was not read from a mapping");
+
+            // decompression is deferred past the region file lock, meanwhile the chunk moves and another chunk takes
+            // over its old sectors
+            write(regionFile, pos, chunk(random, 64 * 1024));
+            write(regionFile, new ChunkPos(0, 1), chunk(random, 8 * 1024));
+
+            final CompoundTag read;
+            try (input) {
+                read = NbtIo.read(input);
+            }
+            assertArrayEquals(original.getByteArray("data").orElseThrow(), read.getByteArray("data").orElseThrow());
+        } finally {
+            misc.mapRegionFileReads = mapRegionFileReads;
+        }
+    }
+}
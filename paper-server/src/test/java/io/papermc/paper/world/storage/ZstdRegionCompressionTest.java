@@ -0,0 +1,77 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZstdRegionCompressionTest {
+
+    private static byte[] sample(final String block, final Random random) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 64; ++i) {
+            builder.append("{Name:\"minecraft:").append(random.nextBoolean() ? block : "deepslate").append("\",Properties:{}}");
+            builder.append("block_states palette data biomes sections Heightmaps ").append(random.nextInt(64));
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(final byte[] data, final ZstdRegionCompression.Dictionary dictionary) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final OutputStream output = ZstdRegionCompression.wrapOutput(bytes, dictionary, ZstdRegionCompression.DEFAULT_LEVEL)) {
+            output.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(final byte[] data) throws IOException {
+        try (final InputStream input = ZstdRegionCompression.wrapInput(new ByteArrayInputStream(data))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static ZstdRegionCompression.Dictionary train(final String block, final Random random) {
+        final ZstdDictTrainer trainer = new ZstdDictTrainer(1024 * 1024, 4096);
+        for (int i = 0; i < 512; ++i) {
+            trainer.addSample(sample(block, random));
+        }
+        return ZstdRegionCompression.Dictionary.of(trainer.trainSamples());
+    }
+
+    @Test
+    public void testRoundTripWithoutDictionary() throws IOException {
+        final byte[] data = sample("stone", new Random(1L));
+        assertArrayEquals(data, decompress(compress(data, null)));
+    }
+
+    @Test
+    public void testRoundTripWithDictionary(@TempDir final Path folder) throws IOException {
+        final Random random = new Random(2L);
+        final ZstdRegionCompression.Dictionary dictionary = train("stone", random);
+        ZstdRegionCompression.useDictionary(folder, dictionary);
+
+        final byte[] data = sample("stone", random);
+        final byte[] withDictionary = compress(data, dictionary);
+        assertArrayEquals(data, decompress(withDictionary));
+        assertTrue(withDictionary.length < compress(data, null).length, "dictionary did not improve compression");
+    }
+
+    @Test
+    public void testUnknownDictionary() throws IOException {
+        final Random random = new Random(3L);
+        // never registered, so the read path cannot resolve it
+        final byte[] compressed = compress(sample("andesite", random), train("andesite", random));
+        assertThrows(IOException.class, () -> decompress(compressed));
+    }
+}
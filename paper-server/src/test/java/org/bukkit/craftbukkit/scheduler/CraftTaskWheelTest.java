@@ -0,0 +1,95 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class CraftTaskWheelTest {
+
+    private static CraftTask task(final int id, final long nextRun) {
+        final CraftTask task = new CraftTask(null, (Runnable) () -> {}, id, CraftTask.NO_REPEATING);
+        task.setNextRun(nextRun);
+        return task;
+    }
+
+    @Test
+    public void testMatchesPriorityOrder() {
+        final Random random = new Random(1L);
+        final CraftTaskWheel wheel = new CraftTaskWheel(-1L);
+        final List<CraftTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; ++i) {
+            // spread over several levels, including delays beyond the first few
+            final long delay = switch (i % 4) {
+                case 0 -> random.nextInt(64);
+                case 1 -> random.nextInt(4096);
+                case 2 -> random.nextInt(1 << 18);
+                default -> random.nextInt(1 << 20);
+            };
+            final CraftTask task = task(i + 1, delay);
+            tasks.add(task);
+            wheel.add(task);
+        }
+        final Comparator<CraftTask> order = Comparator.comparingLong(CraftTask::getNextRun).thenComparingLong(CraftTask::getCreatedAt);
+
+        final List<CraftTask> polled = new ArrayList<>();
+        long previousTick = -1L;
+        for (long tick = 0; tick < 1 << 20; tick += 1 + (tick % 7)) {
+            CraftTask task;
+            while ((task = wheel.poll(tick)) != null) {
+                assertTrue(task.getNextRun() <= tick, "task polled before it was due");
+                assertTrue(task.getNextRun() > previousTick, "task was not polled on the first tick it was due");
+                polled.add(task);
+            }
+            previousTick = tick;
+        }
+        assertTrue(wheel.isEmpty());
+        assertEquals(tasks.size(), polled.size());
+        for (int i = 1; i < polled.size(); ++i) {
+            assertTrue(order.compare(polled.get(i - 1), polled.get(i)) <= 0, "tasks polled out of order");
+        }
+    }
+
+    @Test
+    public void testDueOnAdd() {
+        final CraftTaskWheel wheel = new CraftTaskWheel(-1L);
+        assertNull(wheel.poll(10L));
+        final CraftTask task = task(1, 5L);
+        wheel.add(task);
+        assertSame(task, wheel.poll(10L));
+        assertNull(wheel.poll(10L));
+    }
+
+    @Test
+    public void testRemove() {
+        final CraftTaskWheel wheel = new CraftTaskWheel(-1L);
+        final CraftTask first = task(1, 100L);
+        final CraftTask second = task(2, 100L);
+        final CraftTask third = task(3, 100_000L);
+        wheel.add(first);
+        wheel.add(second);
+        wheel.add(third);
+
+        assertTrue(wheel.remove(second));
+        assertFalse(wheel.remove(second));
+        assertTrue(wheel.remove(third));
+        assertEquals(1, wheel.size());
+        assertSame(first, wheel.poll(100L));
+        assertNull(wheel.poll(100_000L));
+
+        final CraftTask due = task(4, 100_000L);
+        wheel.add(due);
+        wheel.removeIf(task -> task.getTaskId() == 4);
+        assertTrue(wheel.isEmpty());
+        assertNull(wheel.poll(100_000L));
+    }
+}
@@ -38,6 +38,7 @@ for (name in listOf("paper-api", "paper-server")) {
 
 optionalInclude("test-plugin")
 optionalInclude("paper-generator")
+optionalInclude("paper-benchmarks")
 
 fun optionalInclude(name: String, op: (ProjectDescriptor.() -> Unit)? = null) {
     val settingsFile = file("$name.settings.gradle.kts")